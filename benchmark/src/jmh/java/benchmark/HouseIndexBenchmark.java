@@ -0,0 +1,67 @@
+package benchmark;
+
+import common.data.*;
+import org.openjdk.jmh.annotations.*;
+import server.utility.CollectionManager;
+import server.utility.FlatRecord;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск элементов с домом меньше заданного (команда filter_less_than_house) в коллекции из миллиона
+ * элементов: полный просмотр коллекции, как было раньше, против k-d дерева домов
+ * {@link server.utility.HouseDominanceIndex}.
+ * <p>
+ * Запуск: {@code gradle :benchmark:jmh}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HouseIndexBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    private CollectionManager collectionManager;
+    private House bound;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        LocalDateTime creationDate = LocalDateTime.of(2023, 5, 1, 12, 30);
+        Map<Integer, Flat> flats = new HashMap<>(SIZE * 2);
+        for (int id = 1; id <= SIZE; id++) {
+            House house = new House("Дом", 1900 + random.nextInt(125),
+                    random.nextInt(10) == 0 ? null : (long) (1 + random.nextInt(39)),
+                    1 + random.nextInt(20),
+                    random.nextInt(10) == 0 ? null : (long) (1 + random.nextInt(8)));
+            flats.put(id, new Flat(id, "Квартира", new Coordinates(random.nextInt(713), random.nextInt(1000)),
+                    creationDate, 50, 2, 1, Furnish.NONE, View.STREET, house));
+        }
+        collectionManager = new CollectionManager(flats);
+        bound = new House("Граница", 1930, 8L, 5, 2L);
+    }
+
+    @Benchmark
+    public long linearScan() {
+        long year = bound.getYear();
+        long floors = bound.getNumberOfFloors();
+        long flatsOnFloor = bound.getNumberOfFlatsOnFloor();
+        long lifts = bound.getNumberOfLifts();
+        return collectionManager.getFlats().stream()
+                .filter(flat -> flat.house() != null
+                        && flat.house().year() < year
+                        && flat.house().numberOfFloors() != null && flat.house().numberOfFloors() < floors
+                        && flat.house().numberOfFlatsOnFloor() < flatsOnFloor
+                        && flat.house().numberOfLifts() != null && flat.house().numberOfLifts() < lifts)
+                .count();
+    }
+
+    @Benchmark
+    public List<FlatRecord> houseIndex() {
+        return collectionManager.getFlatsWithHouseLessThan(bound);
+    }
+}
@@ -0,0 +1,142 @@
+package benchmark;
+
+import common.data.*;
+import common.interaction.User;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение стандартной сериализации объекта коллекции (поля через отражение, как было раньше)
+ * с {@link Externalizable} реализацией {@link Flat}.
+ * <p>
+ * Запуск: {@code gradle :benchmark:jmh}
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializationBenchmark {
+    private Flat flat;
+    private LegacyFlat legacyFlat;
+    private byte[] flatBytes;
+    private byte[] legacyFlatBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        LocalDateTime creationDate = LocalDateTime.of(2023, 5, 1, 12, 30, 15, 123_000_000);
+        flat = new Flat(42, "Квартира", new Coordinates(100, 200), creationDate, 55, 3, 1, Furnish.DESIGNER,
+                View.STREET, new House("Дом", 1990, 9L, 4, 2L), new User("owner", "password-hash"));
+        legacyFlat = new LegacyFlat(42, "Квартира", new LegacyCoordinates(100, 200), creationDate, 55, 3, 1,
+                Furnish.DESIGNER, View.STREET, new LegacyHouse("Дом", 1990, 9L, 4, 2L),
+                new LegacyUser("owner", "password-hash"));
+        flatBytes = serialize(flat);
+        legacyFlatBytes = serialize(legacyFlat);
+    }
+
+    @Benchmark
+    public byte[] writeExternalizable() throws IOException {
+        return serialize(flat);
+    }
+
+    @Benchmark
+    public byte[] writeSerializable() throws IOException {
+        return serialize(legacyFlat);
+    }
+
+    @Benchmark
+    public Object readExternalizable() throws IOException, ClassNotFoundException {
+        return deserialize(flatBytes);
+    }
+
+    @Benchmark
+    public Object readSerializable() throws IOException, ClassNotFoundException {
+        return deserialize(legacyFlatBytes);
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+
+    /*
+     * Копии классов коллекции в том виде, в котором они сериализовались до перехода на Externalizable
+     */
+
+    static class LegacyCoordinates implements Serializable {
+        private final int x;
+        private final Integer y;
+
+        LegacyCoordinates(int x, Integer y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    static class LegacyHouse implements Serializable {
+        private final String name;
+        private final int year;
+        private final Long numberOfFloors;
+        private final long numberOfFlatsOnFloor;
+        private final Long numberOfLifts;
+
+        LegacyHouse(String name, int year, Long numberOfFloors, long numberOfFlatsOnFloor, Long numberOfLifts) {
+            this.name = name;
+            this.year = year;
+            this.numberOfFloors = numberOfFloors;
+            this.numberOfFlatsOnFloor = numberOfFlatsOnFloor;
+            this.numberOfLifts = numberOfLifts;
+        }
+    }
+
+    static class LegacyUser implements Serializable {
+        private final String username;
+        private final String password;
+        private String token;
+
+        LegacyUser(String username, String password) {
+            this.username = username;
+            this.password = password;
+        }
+    }
+
+    static class LegacyFlat implements Serializable {
+        private final int id;
+        private final String name;
+        private final LegacyCoordinates coordinates;
+        private final LocalDateTime creationDate;
+        private final int area;
+        private final long numberOfRooms;
+        private final long numberOfBathrooms;
+        private final Furnish furnish;
+        private final View view;
+        private final LegacyHouse house;
+        private final LegacyUser owner;
+
+        LegacyFlat(int id, String name, LegacyCoordinates coordinates, LocalDateTime creationDate, int area,
+                   long numberOfRooms, long numberOfBathrooms, Furnish furnish, View view, LegacyHouse house,
+                   LegacyUser owner) {
+            this.id = id;
+            this.name = name;
+            this.coordinates = coordinates;
+            this.creationDate = creationDate;
+            this.area = area;
+            this.numberOfRooms = numberOfRooms;
+            this.numberOfBathrooms = numberOfBathrooms;
+            this.furnish = furnish;
+            this.view = view;
+            this.house = house;
+            this.owner = owner;
+        }
+    }
+}
@@ -5,6 +5,9 @@ import client.utility.UserHandler;
 import common.exceptions.ConnectionErrorException;
 import common.exceptions.InvalidValueException;
 import common.exceptions.WrongArgumentException;
+import common.interaction.FrameCodec;
+import common.interaction.Handshake;
+import common.interaction.WireProtocol;
 import common.interaction.User;
 import common.interaction.requests.Request;
 import common.interaction.responses.Response;
@@ -26,8 +29,9 @@ public class Client {
     private final UserHandler userHandler;
     private int reconnectionAttempts;
     private SocketChannel socketChannel;
-    private ObjectOutputStream serverWriter;
-    private ObjectInputStream serverReader;
+    private DataOutputStream serverWriter;
+    private DataInputStream serverReader;
+    private WireProtocol protocol;
     private AuthenticationHandler authenticationHandler;
     private User user;
 
@@ -92,8 +96,10 @@ public class Client {
             socketChannel = SocketChannel.open(new InetSocketAddress(host, port));
             UserConsole.printCommandTextNext("Соединение с сервером успешно установлено.");
             UserConsole.printCommandTextNext("Ожидание разрешения на обмен данными.");
-            serverWriter = new ObjectOutputStream(socketChannel.socket().getOutputStream());
-            serverReader = new ObjectInputStream(socketChannel.socket().getInputStream());
+            serverWriter = new DataOutputStream(new BufferedOutputStream(socketChannel.socket().getOutputStream()));
+            serverReader = new DataInputStream(new BufferedInputStream(socketChannel.socket().getInputStream()));
+            FrameCodec.writeFrame(serverWriter, Handshake.offer(WireProtocol.BINARY, WireProtocol.JAVA_SERIALIZATION));
+            protocol = Handshake.parseAccept(FrameCodec.readFrame(serverReader));
             UserConsole.printCommandTextNext("Разрешение на обмен данными получено.");
         } catch (IllegalArgumentException ex) {
             UserConsole.printCommandError("Адрес сервера введен некорректно");
@@ -121,9 +127,8 @@ public class Client {
                 requestToServer = serverResponse != null ? userHandler.handle(serverResponse.getResponseCode(), user) :
                         userHandler.handle(null, user);
                 if (requestToServer.isEmpty()) continue;
-                serverWriter.writeObject(requestToServer);
-                serverResponse = (Response) serverReader.readObject();
-                UserConsole.printCommandText(serverResponse.getResponseBody());
+                FrameCodec.writeFrame(serverWriter, protocol.encode(requestToServer));
+                serverResponse = receiveResponse();
             } catch (InvalidClassException | NotSerializableException ex) {
                 UserConsole.printCommandError("Произошла ошибка при отправке данных на сервер");
             } catch (ClassNotFoundException ex) {
@@ -141,6 +146,20 @@ public class Client {
         } while (!requestToServer.getCommandName().equals("exit"));
     }
 
+    /**
+     * Читает ответ сервера целиком, печатая его части по мере получения
+     *
+     * @return последняя часть ответа
+     */
+    private Response receiveResponse() throws IOException, ClassNotFoundException {
+        Response serverResponse;
+        do {
+            serverResponse = (Response) protocol.decode(FrameCodec.readFrame(serverReader));
+            UserConsole.printCommandText(serverResponse.getResponseBody());
+        } while (serverResponse.isMore());
+        return serverResponse;
+    }
+
     private void processAuthentication() {
         Request requestToServer;
         Response serverResponse = null;
@@ -148,9 +167,8 @@ public class Client {
             try {
                 requestToServer = authenticationHandler.handle();
                 if (requestToServer.isEmpty()) continue;
-                serverWriter.writeObject(requestToServer);
-                serverResponse = (Response) serverReader.readObject();
-                UserConsole.printCommandText(serverResponse.getResponseBody());
+                FrameCodec.writeFrame(serverWriter, protocol.encode(requestToServer));
+                serverResponse = receiveResponse();
             } catch (InvalidClassException | NotSerializableException ex) {
                 UserConsole.printCommandError("Ошибка при отправке данных на сервер");
             } catch (ClassNotFoundException ex) {
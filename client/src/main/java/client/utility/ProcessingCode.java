@@ -9,5 +9,6 @@ public enum ProcessingCode {
     OBJECT,
     UPDATE_OBJECT,
     SCRIPT,
+    IMPORT,
     UPDATE_OBJECT_HOUSE;
 }
@@ -15,6 +15,9 @@ import common.utility.UserConsole;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.NoSuchElementException;
 import java.util.Scanner;
@@ -30,6 +33,7 @@ public class UserHandler {
     private final Stack<Scanner> scannerStack = new Stack<>();
     private final ArrayList<String> history = new ArrayList<>();
     private static final int MAX_HISTORY_SIZE = 13;
+    private static final int MAX_INSERT_BATCH_SIZE = 1000;
 
     public UserHandler(Scanner userConsole) {
         this.userScanner = userConsole;
@@ -89,7 +93,10 @@ public class UserHandler {
                 switch (processingCode) {
                     case OBJECT -> {
                         Flat flatAddValue = generateFlatAdd();
-                        return new Request(userCommand[0], userCommand[1], flatAddValue, user);
+                        if (!fileMode()) return new Request(userCommand[0], userCommand[1], flatAddValue, user);
+                        ArrayList<Flat> flats = generateFlatsAddBatch(flatAddValue);
+                        if (flats.size() == 1) return new Request(userCommand[0], userCommand[1], flatAddValue, user);
+                        return new Request("insert_many", "", flats, user);
                     }
                     case UPDATE_OBJECT -> {
                         Flat flatUpdateValue = generateFlatUpdate();
@@ -109,9 +116,15 @@ public class UserHandler {
                         userScanner = new Scanner(scriptFile);
                         UserConsole.printCommandTextNext("Выполняю скрипт '" + scriptFile.getName() + "'...");
                     }
+                    case IMPORT -> {
+                        String content = Files.readString(Path.of(userCommand[1]));
+                        return new Request(userCommand[0], userCommand[1], content, user);
+                    }
                 }
             } catch (FileNotFoundException ex) {
                 UserConsole.printCommandError("Файл со скриптом не найден");
+            } catch (NoSuchFileException ex) {
+                UserConsole.printCommandError("Файл для импорта не найден");
             } catch (RecursiveException ex) {
                 UserConsole.printCommandError("Скрипт вызывается рекурсивно");
                 throw new ErrorInScriptException();
@@ -142,9 +155,16 @@ public class UserHandler {
                 case "" -> {
                     return ProcessingCode.ERROR;
                 }
-                case "info", "show", "clear", "exit", "help", "server_exit" -> {
+                case "info", "clear", "exit", "help", "server_exit" -> {
                     if (!commandArgument.isEmpty()) throw new CommandUsageException();
                 }
+                case "show" -> {
+                    if (!commandArgument.isEmpty()) {
+                        String[] page = commandArgument.trim().split("\\s+");
+                        if (page.length != 2 || Integer.parseInt(page[1]) <= 0) throw new CommandUsageException("[<after_key> <limit'>0'>]");
+                        Integer.parseInt(page[0]);
+                    }
+                }
                 case "insert" -> {
                     if (!commandArgument.isEmpty()) throw new CommandUsageException("{element}");
                     return ProcessingCode.OBJECT;
@@ -160,6 +180,10 @@ public class UserHandler {
                     if (commandArgument.isEmpty()) throw new CommandUsageException("<file_name>");
                     return ProcessingCode.SCRIPT;
                 }
+                case "import" -> {
+                    if (commandArgument.isEmpty()) throw new CommandUsageException("<file_name>");
+                    return ProcessingCode.IMPORT;
+                }
                 case "remove_all_by_view" -> {
                     if (commandArgument.isEmpty()) throw new CommandUsageException("<View>");
                 }
@@ -167,6 +191,17 @@ public class UserHandler {
                     if (!commandArgument.isEmpty()) throw new CommandUsageException();
                     return ProcessingCode.UPDATE_OBJECT_HOUSE;
                 }
+                case "filter_in_box" -> {
+                    String[] bounds = commandArgument.trim().split("\\s+");
+                    if (bounds.length != 4) throw new CommandUsageException("<min_x> <min_y> <max_x> <max_y>");
+                    for (String bound : bounds) Integer.parseInt(bound);
+                }
+                case "nearest" -> {
+                    String[] point = commandArgument.trim().split("\\s+");
+                    if (point.length != 3 || Integer.parseInt(point[2]) <= 0) throw new CommandUsageException("<x> <y> <count'>0'>");
+                    Integer.parseInt(point[0]);
+                    Integer.parseInt(point[1]);
+                }
                 case "print_field_ascending_house" -> {
                     if (!commandArgument.isEmpty()) throw new CommandUsageException("<House>");
                 }
@@ -240,6 +275,30 @@ public class UserHandler {
         );
     }
 
+    /**
+     * Собирает идущие подряд в скрипте команды insert, чтобы отправить их одним запросом
+     *
+     * @param first элемент уже прочитанной команды insert
+     * @return элементы в порядке следования в скрипте
+     * @throws ErrorInScriptException когда что-то не так в скрипте
+     */
+    private ArrayList<Flat> generateFlatsAddBatch(Flat first) throws ErrorInScriptException {
+        ArrayList<Flat> flats = new ArrayList<>();
+        flats.add(first);
+        while (flats.size() < MAX_INSERT_BATCH_SIZE && userScanner.hasNext("insert")) {
+            String userInput;
+            do {
+                userInput = userScanner.nextLine().trim();
+            } while (userInput.isEmpty());
+            UserConsole.printCommandText(App.PS1);
+            UserConsole.printCommandTextNext(userInput);
+            if (!userInput.equals("insert")) throw new ErrorInScriptException();
+            addToHistory(userInput);
+            flats.add(generateFlatAdd());
+        }
+        return flats;
+    }
+
     private Flat generateFlatAdd() throws ErrorInScriptException {
         FlatReader flatReader = new FlatReader(userScanner);
         if (fileMode()) flatReader.setFileMode();
@@ -1,11 +1,18 @@
 package common.data;
 
-import java.io.Serializable;
+import common.utility.ExternalizableSupport;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
  * Класс, содержащий координаты элемента коллекции
  */
-public class Coordinates implements Serializable, Comparable<Coordinates> {
+public class Coordinates implements Externalizable, Comparable<Coordinates> {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Поле координаты x. Максимальное значение поля: 713
      */
@@ -16,6 +23,11 @@ public class Coordinates implements Serializable, Comparable<Coordinates> {
      */
     private Integer y;
 
+    /**
+     * Конструктор для восстановления объекта из потока ({@link Externalizable})
+     */
+    public Coordinates() {}
+
     /**
      * Конструктор класса
      *
@@ -74,6 +86,18 @@ public class Coordinates implements Serializable, Comparable<Coordinates> {
         return "(x,y) = (" + x + "," + y + ")";
     }
 
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(x);
+        ExternalizableSupport.writeNullableInteger(out, y);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        x = in.readInt();
+        y = ExternalizableSupport.readNullableInteger(in);
+    }
+
     @Override
     public int compareTo(Coordinates o) {
         return x * x + y * y - o.x * o.x - o.y * o.y; //сравнивает по удаленности от (0,0)
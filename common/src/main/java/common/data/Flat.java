@@ -2,16 +2,22 @@ package common.data;
 
 import com.google.gson.annotations.JsonAdapter;
 import common.interaction.User;
+import common.utility.ExternalizableSupport;
 import common.utility.LocalDateTimeAdapter;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 
 /**
  * Класс объектов коллекции
  */
-public class Flat implements Comparable<Flat>, Serializable {
+public class Flat implements Comparable<Flat>, Externalizable {
+    private static final long serialVersionUID = 1L;
 
     // Идентификатор коллекции. Значение поля должно быть больше 0,
     // Значение этого поля должно быть уникальным,
@@ -49,6 +55,11 @@ public class Flat implements Comparable<Flat>, Serializable {
     private House house;
     private User owner;
 
+    /**
+     * Конструктор для восстановления объекта из потока ({@link Externalizable})
+     */
+    public Flat() {}
+
     /**
      * Конструктор объекта класса
      *
@@ -360,6 +371,55 @@ public class Flat implements Comparable<Flat>, Serializable {
                 '}';
     }
 
+    /**
+     * Записывает поля подряд, вложенные объекты - без их описаний классов
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        out.writeInt(id);
+        ExternalizableSupport.writeNullableString(out, name);
+        out.writeBoolean(coordinates != null);
+        if (coordinates != null) coordinates.writeExternal(out);
+        out.writeBoolean(creationDate != null);
+        if (creationDate != null) {
+            out.writeLong(creationDate.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(creationDate.getNano());
+        }
+        out.writeInt(area);
+        out.writeLong(numberOfRooms);
+        out.writeLong(numberOfBathrooms);
+        ExternalizableSupport.writeEnum(out, furnish);
+        ExternalizableSupport.writeEnum(out, view);
+        out.writeBoolean(house != null);
+        if (house != null) house.writeExternal(out);
+        out.writeBoolean(owner != null);
+        if (owner != null) owner.writeExternal(out);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        id = in.readInt();
+        name = ExternalizableSupport.readNullableString(in);
+        if (in.readBoolean()) {
+            coordinates = new Coordinates();
+            coordinates.readExternal(in);
+        }
+        if (in.readBoolean()) creationDate = LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+        area = in.readInt();
+        numberOfRooms = in.readLong();
+        numberOfBathrooms = in.readLong();
+        furnish = ExternalizableSupport.readEnum(in, Furnish.values());
+        view = ExternalizableSupport.readEnum(in, View.values());
+        if (in.readBoolean()) {
+            house = new House();
+            house.readExternal(in);
+        }
+        if (in.readBoolean()) {
+            owner = new User();
+            owner.readExternal(in);
+        }
+    }
+
     @Override
     public int compareTo(Flat o) {
         return this.getId() - o.getId();
@@ -1,11 +1,19 @@
 package common.data;
 
-import java.io.Serializable;
+import common.utility.ExternalizableSupport;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Comparator;
 
 /**
  * Класс - дом объекта класса Flat
  */
-public class House implements Comparable<House>, Serializable {
+public class House implements Comparable<House>, Externalizable {
+    private static final long serialVersionUID = 1L;
+
     /*
      * Имя объекта класса. Поле не может быть null
      */
@@ -27,6 +35,11 @@ public class House implements Comparable<House>, Serializable {
      */
     private Long numberOfLifts;
 
+    /**
+     * Конструктор для восстановления объекта из потока ({@link Externalizable})
+     */
+    public House() {}
+
     /**
      * Конструктор класса
      *
@@ -150,18 +163,40 @@ public class House implements Comparable<House>, Serializable {
 
     /**
      * Метод сравнивает 2 дома по количеству этажей, если оно одинаковое, то сравнивает по
-     * количеству квартир на этаже.
+     * количеству квартир на этаже. Дома без количества этажей равны между собой по этому полю
+     * и меньше остальных.
      *
      * @param o объект для сравнения.
      * @return результат сравнения полей.
      */
     @Override
     public int compareTo(House o) {
-        if (this.getNumberOfFloors() == null) return -1;
-        if (o.getNumberOfFloors() == null) return 1;
-        if ((long) this.numberOfFloors == o.getNumberOfFloors()){
-            return Long.compare(this.numberOfFlatsOnFloor, o.getNumberOfFlatsOnFloor());
-        }
-        return Long.compare(this.numberOfFloors, o.getNumberOfFloors());
+        int floors = Comparator.nullsFirst(Long::compare).compare(this.numberOfFloors, o.getNumberOfFloors());
+        if (floors != 0) return floors;
+        return Long.compare(this.numberOfFlatsOnFloor, o.getNumberOfFlatsOnFloor());
+    }
+
+    /**
+     * Записывает поля подряд, необязательные - с признаком наличия значения
+     */
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        ExternalizableSupport.writeNullableString(out, name);
+        out.writeInt(year);
+        ExternalizableSupport.writeNullableLong(out, numberOfFloors);
+        out.writeLong(numberOfFlatsOnFloor);
+        ExternalizableSupport.writeNullableLong(out, numberOfLifts);
+    }
+
+    /**
+     * Читает поля в порядке {@link #writeExternal(ObjectOutput)}
+     */
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        name = ExternalizableSupport.readNullableString(in);
+        year = in.readInt();
+        numberOfFloors = ExternalizableSupport.readNullableLong(in);
+        numberOfFlatsOnFloor = in.readLong();
+        numberOfLifts = ExternalizableSupport.readNullableLong(in);
     }
 }
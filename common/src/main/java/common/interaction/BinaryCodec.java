@@ -0,0 +1,237 @@
+package common.interaction;
+
+import common.data.*;
+import common.interaction.requests.Request;
+import common.interaction.responses.Response;
+import common.interaction.responses.ResponseCode;
+import common.utility.ExternalizableSupport;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Компактный бинарный формат для {@link Request} и {@link Response}.
+ * Поля пишутся подряд без имен классов и описаний полей. Тело начинается с номера версии формата,
+ * чтобы при его изменении старая сторона получала понятную ошибку, а не мусор.
+ * Аргумент-объект запроса, для которого нет собственной записи, передается сериализацией Java.
+ */
+public final class BinaryCodec {
+    /**
+     * Текущая версия формата
+     */
+    public static final int VERSION = 2;
+
+    private static final int REQUEST = 1;
+    private static final int RESPONSE = 2;
+
+    private static final int ARGUMENT_NULL = 0;
+    private static final int ARGUMENT_FLAT = 1;
+    private static final int ARGUMENT_HOUSE = 2;
+    private static final int ARGUMENT_SERIALIZED = 127;
+
+    private BinaryCodec() {}
+
+    /**
+     * Кодирует запрос или ответ
+     *
+     * @param message сообщение
+     * @return тело кадра
+     * @throws IOException сообщение неподдерживаемого типа
+     */
+    public static byte[] encode(Serializable message) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(VERSION);
+        if (message instanceof Request request) {
+            out.writeByte(REQUEST);
+            writeRequest(out, request);
+        } else if (message instanceof Response response) {
+            out.writeByte(RESPONSE);
+            writeResponse(out, response);
+        } else {
+            throw new IOException("Неподдерживаемый тип сообщения: " + message.getClass().getName());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Восстанавливает запрос или ответ
+     *
+     * @param body тело кадра
+     * @return сообщение
+     * @throws IOException            тело повреждено или записано другой версией формата
+     * @throws ClassNotFoundException класс аргумента-объекта не найден
+     */
+    public static Object decode(byte[] body) throws IOException, ClassNotFoundException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        int version = in.readUnsignedByte();
+        if (version != VERSION) throw new IOException("Неподдерживаемая версия бинарного формата: " + version);
+        int type = in.readUnsignedByte();
+        return switch (type) {
+            case REQUEST -> readRequest(in);
+            case RESPONSE -> readResponse(in);
+            default -> throw new IOException("Неизвестный тип сообщения: " + type);
+        };
+    }
+
+    private static void writeRequest(DataOutputStream out, Request request) throws IOException {
+        writeString(out, request.getCommandName());
+        writeString(out, request.getCommandStringArgument());
+        writeArgument(out, request.getCommandObjectArgument());
+        writeUser(out, request.getUser());
+    }
+
+    private static Request readRequest(DataInputStream in) throws IOException, ClassNotFoundException {
+        String commandName = readString(in);
+        String commandStringArgument = readString(in);
+        Serializable commandObjectArgument = readArgument(in);
+        return new Request(commandName, commandStringArgument, commandObjectArgument, readUser(in));
+    }
+
+    private static void writeResponse(DataOutputStream out, Response response) throws IOException {
+        out.writeByte(response.getResponseCode().ordinal());
+        writeString(out, response.getResponseBody());
+        writeUser(out, response.getUser());
+        out.writeBoolean(response.isMore());
+    }
+
+    private static Response readResponse(DataInputStream in) throws IOException {
+        int code = in.readUnsignedByte();
+        if (code >= ResponseCode.values().length) throw new IOException("Неизвестный код ответа: " + code);
+        return new Response(ResponseCode.values()[code], readString(in), readUser(in), in.readBoolean());
+    }
+
+    private static void writeArgument(DataOutputStream out, Object argument) throws IOException {
+        if (argument == null) {
+            out.writeByte(ARGUMENT_NULL);
+        } else if (argument instanceof Flat flat) {
+            out.writeByte(ARGUMENT_FLAT);
+            writeFlat(out, flat);
+        } else if (argument instanceof House house) {
+            out.writeByte(ARGUMENT_HOUSE);
+            writeHouse(out, house);
+        } else {
+            out.writeByte(ARGUMENT_SERIALIZED);
+            writeBytes(out, FrameCodec.serialize((Serializable) argument));
+        }
+    }
+
+    private static Serializable readArgument(DataInputStream in) throws IOException, ClassNotFoundException {
+        int tag = in.readUnsignedByte();
+        return switch (tag) {
+            case ARGUMENT_NULL -> null;
+            case ARGUMENT_FLAT -> readFlat(in);
+            case ARGUMENT_HOUSE -> readHouse(in);
+            case ARGUMENT_SERIALIZED -> (Serializable) FrameCodec.deserialize(readBytes(in));
+            default -> throw new IOException("Неизвестный тип аргумента: " + tag);
+        };
+    }
+
+    private static void writeFlat(DataOutputStream out, Flat flat) throws IOException {
+        out.writeInt(flat.getId());
+        writeString(out, flat.getName());
+        writeCoordinates(out, flat.getCoordinates());
+        LocalDateTime creationDate = flat.getCreationDate();
+        out.writeBoolean(creationDate != null);
+        if (creationDate != null) {
+            out.writeLong(creationDate.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(creationDate.getNano());
+        }
+        out.writeInt(flat.getArea());
+        out.writeLong(flat.getNumberOfRooms());
+        out.writeLong(flat.getNumberOfBathrooms());
+        ExternalizableSupport.writeEnum(out, flat.getFurnish());
+        ExternalizableSupport.writeEnum(out, flat.getView());
+        out.writeBoolean(flat.getHouse() != null);
+        if (flat.getHouse() != null) writeHouse(out, flat.getHouse());
+        writeUser(out, flat.getOwner());
+    }
+
+    private static Flat readFlat(DataInputStream in) throws IOException {
+        int id = in.readInt();
+        String name = readString(in);
+        Coordinates coordinates = readCoordinates(in);
+        LocalDateTime creationDate = in.readBoolean()
+                ? LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC)
+                : null;
+        int area = in.readInt();
+        long numberOfRooms = in.readLong();
+        long numberOfBathrooms = in.readLong();
+        Furnish furnish = ExternalizableSupport.readEnum(in, Furnish.values());
+        View view = ExternalizableSupport.readEnum(in, View.values());
+        House house = in.readBoolean() ? readHouse(in) : null;
+        return new Flat(id, name, coordinates, creationDate, area, numberOfRooms, numberOfBathrooms,
+                furnish, view, house, readUser(in));
+    }
+
+    private static void writeCoordinates(DataOutputStream out, Coordinates coordinates) throws IOException {
+        out.writeBoolean(coordinates != null);
+        if (coordinates == null) return;
+        out.writeInt(coordinates.getX());
+        ExternalizableSupport.writeNullableLong(out, coordinates.getY() == null ? null : coordinates.getY().longValue());
+    }
+
+    private static Coordinates readCoordinates(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        int x = in.readInt();
+        Long y = ExternalizableSupport.readNullableLong(in);
+        return new Coordinates(x, y == null ? null : y.intValue());
+    }
+
+    private static void writeHouse(DataOutputStream out, House house) throws IOException {
+        writeString(out, house.getName());
+        out.writeInt(house.getYear());
+        ExternalizableSupport.writeNullableLong(out, house.getNumberOfFloors());
+        out.writeLong(house.getNumberOfFlatsOnFloor());
+        ExternalizableSupport.writeNullableLong(out, house.getNumberOfLifts());
+    }
+
+    private static House readHouse(DataInputStream in) throws IOException {
+        return new House(readString(in), in.readInt(), ExternalizableSupport.readNullableLong(in), in.readLong(),
+                ExternalizableSupport.readNullableLong(in));
+    }
+
+    private static void writeUser(DataOutputStream out, User user) throws IOException {
+        out.writeBoolean(user != null);
+        if (user == null) return;
+        writeString(out, user.getUsername());
+        writeString(out, user.getPassword());
+        writeString(out, user.getToken());
+    }
+
+    private static User readUser(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) return null;
+        return new User(readString(in), readString(in)).setToken(readString(in));
+    }
+
+    // строки пишутся длиной в байтах UTF-8 (-1 для null), так как writeUTF ограничен 64 КБ
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value == null ? null : value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length == -1) return null;
+        FrameCodec.checkLength(length);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,102 @@
+package common.interaction;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+
+/**
+ * Класс для упаковки сообщений в кадры с префиксом длины.
+ * Кадр состоит из 4 байт длины (big-endian) и тела - сообщения, закодированного выбранным
+ * {@link WireProtocol}. Каждый кадр самодостаточен, поэтому его можно собрать из неблокирующего канала по частям.
+ */
+public final class FrameCodec {
+    /**
+     * Размер заголовка кадра (длина тела)
+     */
+    public static final int HEADER_SIZE = Integer.BYTES;
+
+    /**
+     * Максимальный допустимый размер тела кадра
+     */
+    public static final int MAX_FRAME_SIZE = 16 * 1024 * 1024;
+
+    private FrameCodec() {}
+
+    /**
+     * Сериализует объект в массив байт (тело кадра)
+     *
+     * @param object объект
+     * @return тело кадра
+     * @throws IOException ошибка сериализации
+     */
+    public static byte[] serialize(Serializable object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOutputStream = new ObjectOutputStream(bytes)) {
+            objectOutputStream.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Восстанавливает объект из тела кадра
+     *
+     * @param body тело кадра
+     * @return объект
+     * @throws IOException            ошибка чтения
+     * @throws ClassNotFoundException класс объекта не найден
+     */
+    public static Object deserialize(byte[] body) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInputStream = new ObjectInputStream(new ByteArrayInputStream(body))) {
+            return objectInputStream.readObject();
+        }
+    }
+
+    /**
+     * Упаковывает тело в готовый к записи в канал буфер (заголовок + тело)
+     *
+     * @param body тело кадра
+     * @return буфер, готовый к чтению
+     */
+    public static ByteBuffer frame(byte[] body) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_SIZE + body.length);
+        frame.putInt(body.length).put(body).flip();
+        return frame;
+    }
+
+    /**
+     * Проверяет длину, прочитанную из заголовка кадра
+     *
+     * @param length длина тела
+     * @throws IOException длина недопустима
+     */
+    public static void checkLength(int length) throws IOException {
+        if (length < 0 || length > MAX_FRAME_SIZE) throw new IOException("Недопустимая длина кадра: " + length);
+    }
+
+    /**
+     * Записывает кадр в блокирующий поток
+     *
+     * @param outputStream поток
+     * @param body         тело кадра
+     * @throws IOException ошибка записи
+     */
+    public static void writeFrame(DataOutputStream outputStream, byte[] body) throws IOException {
+        outputStream.writeInt(body.length);
+        outputStream.write(body);
+        outputStream.flush();
+    }
+
+    /**
+     * Читает кадр из блокирующего потока (блокируется до получения кадра целиком)
+     *
+     * @param inputStream поток
+     * @return тело кадра
+     * @throws IOException ошибка чтения или разрыв соединения
+     */
+    public static byte[] readFrame(DataInputStream inputStream) throws IOException {
+        int length = inputStream.readInt();
+        checkLength(length);
+        byte[] body = new byte[length];
+        inputStream.readFully(body);
+        return body;
+    }
+}
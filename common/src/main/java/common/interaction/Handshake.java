@@ -0,0 +1,91 @@
+package common.interaction;
+
+import java.io.*;
+
+/**
+ * Согласование протокола при подключении.
+ * Клиент первым кадром отправляет предложение - список поддерживаемых протоколов в порядке предпочтения,
+ * сервер отвечает выбранным. Клиент, который не присылает предложения, считается клиентом
+ * со стандартной сериализацией Java.
+ */
+public final class Handshake {
+    /**
+     * Первые 4 байта кадра согласования. Сериализованный объект Java начинается с 0xACED,
+     * поэтому с обычным запросом предложение не спутать.
+     */
+    public static final int MAGIC = 0x4C414237;
+
+    private Handshake() {}
+
+    /**
+     * Формирует предложение клиента
+     *
+     * @param protocols поддерживаемые протоколы в порядке предпочтения
+     * @return тело кадра
+     */
+    public static byte[] offer(WireProtocol... protocols) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(MAGIC);
+            out.writeByte(protocols.length);
+            for (WireProtocol protocol : protocols) {
+                out.writeByte(protocol.getId());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param body тело первого кадра соединения
+     * @return true, если это кадр согласования
+     */
+    public static boolean isHandshake(byte[] body) {
+        return body.length >= Integer.BYTES
+                && ((body[0] & 0xFF) << 24 | (body[1] & 0xFF) << 16 | (body[2] & 0xFF) << 8 | (body[3] & 0xFF)) == MAGIC;
+    }
+
+    /**
+     * Выбирает первый из предложенных клиентом протоколов, известный серверу
+     *
+     * @param offer тело кадра предложения
+     * @return выбранный протокол; сериализация Java, если общих протоколов нет
+     * @throws IOException кадр поврежден
+     */
+    public static WireProtocol choose(byte[] offer) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(offer));
+        if (in.readInt() != MAGIC) throw new IOException("Кадр не является предложением протокола");
+        int count = in.readUnsignedByte();
+        for (int i = 0; i < count; i++) {
+            WireProtocol protocol = WireProtocol.byId(in.readUnsignedByte());
+            if (protocol != null) return protocol;
+        }
+        return WireProtocol.JAVA_SERIALIZATION;
+    }
+
+    /**
+     * Формирует ответ сервера на предложение
+     *
+     * @param protocol выбранный протокол
+     * @return тело кадра
+     */
+    public static byte[] accept(WireProtocol protocol) {
+        return new byte[]{(byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC,
+                (byte) protocol.getId()};
+    }
+
+    /**
+     * Разбирает ответ сервера на предложение
+     *
+     * @param body тело кадра
+     * @return выбранный сервером протокол
+     * @throws IOException ответ поврежден или протокол неизвестен
+     */
+    public static WireProtocol parseAccept(byte[] body) throws IOException {
+        if (body.length != Integer.BYTES + 1 || !isHandshake(body)) throw new IOException("Неверный ответ на предложение протокола");
+        WireProtocol protocol = WireProtocol.byId(body[Integer.BYTES] & 0xFF);
+        if (protocol == null) throw new IOException("Сервер выбрал неизвестный протокол");
+        return protocol;
+    }
+}
@@ -1,13 +1,25 @@
 package common.interaction;
 
-import java.io.Serializable;
+import common.utility.ExternalizableSupport;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.util.Objects;
 
-public class User implements Serializable {
-    private final String username;
-    private final String password;
+public class User implements Externalizable {
+    private static final long serialVersionUID = 1L;
+
+    private String username;
+    private String password;
     private String token;
 
+    /**
+     * Конструктор для восстановления объекта из потока ({@link Externalizable})
+     */
+    public User() {}
+
     public User(String username, String password) {
         this.username = username;
         this.password = password;
@@ -30,6 +42,20 @@ public class User implements Serializable {
         return this;
     }
 
+    @Override
+    public void writeExternal(ObjectOutput out) throws IOException {
+        ExternalizableSupport.writeNullableString(out, username);
+        ExternalizableSupport.writeNullableString(out, password);
+        ExternalizableSupport.writeNullableString(out, token);
+    }
+
+    @Override
+    public void readExternal(ObjectInput in) throws IOException {
+        username = ExternalizableSupport.readNullableString(in);
+        password = ExternalizableSupport.readNullableString(in);
+        token = ExternalizableSupport.readNullableString(in);
+    }
+
     @Override
     public String toString() {
         return "User{" +
@@ -0,0 +1,79 @@
+package common.interaction;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Форматы тела кадра, которые клиент и сервер согласуют при подключении ({@link Handshake})
+ */
+public enum WireProtocol {
+    /**
+     * Стандартная сериализация Java. Используется, если другая сторона не знает ничего лучше
+     */
+    JAVA_SERIALIZATION(1) {
+        @Override
+        public byte[] encode(Serializable message) throws IOException {
+            return FrameCodec.serialize(message);
+        }
+
+        @Override
+        public Object decode(byte[] body) throws IOException, ClassNotFoundException {
+            return FrameCodec.deserialize(body);
+        }
+    },
+    /**
+     * Компактный бинарный формат {@link BinaryCodec}
+     */
+    BINARY(2) {
+        @Override
+        public byte[] encode(Serializable message) throws IOException {
+            return BinaryCodec.encode(message);
+        }
+
+        @Override
+        public Object decode(byte[] body) throws IOException, ClassNotFoundException {
+            return BinaryCodec.decode(body);
+        }
+    };
+
+    private final int id;
+
+    WireProtocol(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Кодирует сообщение ({@link common.interaction.requests.Request} или
+     * {@link common.interaction.responses.Response}) в тело кадра
+     *
+     * @param message сообщение
+     * @return тело кадра
+     * @throws IOException ошибка кодирования
+     */
+    public abstract byte[] encode(Serializable message) throws IOException;
+
+    /**
+     * Восстанавливает сообщение из тела кадра
+     *
+     * @param body тело кадра
+     * @return сообщение
+     * @throws IOException            тело повреждено
+     * @throws ClassNotFoundException класс объекта не найден
+     */
+    public abstract Object decode(byte[] body) throws IOException, ClassNotFoundException;
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @param id идентификатор протокола
+     * @return протокол или null, если такой неизвестен
+     */
+    public static WireProtocol byId(int id) {
+        for (WireProtocol protocol : values()) {
+            if (protocol.id == id) return protocol;
+        }
+        return null;
+    }
+}
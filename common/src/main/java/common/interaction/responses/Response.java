@@ -11,11 +11,20 @@ public class Response implements Serializable {
     private ResponseCode responseCode;
     private String responseBody;
     private User user;
+    private boolean more;
 
     public Response(ResponseCode responseCode, String responseBody, User user) {
+        this(responseCode, responseBody, user, false);
+    }
+
+    /**
+     * @param more true, если это не последняя часть ответа и за ней последуют другие
+     */
+    public Response(ResponseCode responseCode, String responseBody, User user, boolean more) {
         this.responseCode = responseCode;
         this.responseBody = responseBody;
         this.user = user;
+        this.more = more;
     }
 
     /**
@@ -36,6 +45,13 @@ public class Response implements Serializable {
         return user;
     }
 
+    /**
+     * @return true, если ответ передается частями и это не последняя часть
+     */
+    public boolean isMore() {
+        return more;
+    }
+
     @Override
     public String toString() {
         return "Response[" + responseCode + ", " + responseBody + "]";
@@ -7,5 +7,6 @@ public enum ResponseCode {
     OK,
     ERROR,
     SERVER_EXIT,
-    TOKEN_EXPIRED
+    TOKEN_EXPIRED,
+    SERVER_BUSY
 }
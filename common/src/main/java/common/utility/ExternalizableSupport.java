@@ -0,0 +1,55 @@
+package common.utility;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Запись и чтение полей, которые могут быть null, в {@link java.io.Externalizable} объектах коллекции
+ * и в {@link common.interaction.BinaryCodec}, чтобы оба формата кодировали их одинаково.
+ * Перед значением пишется признак его наличия.
+ */
+public final class ExternalizableSupport {
+    private ExternalizableSupport() {}
+
+    public static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    public static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    public static void writeNullableLong(DataOutput out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeLong(value);
+    }
+
+    public static Long readNullableLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    public static void writeNullableInteger(DataOutput out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeInt(value);
+    }
+
+    public static Integer readNullableInteger(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+
+    /**
+     * Записывает значение перечисления его порядковым номером (-1 для null)
+     */
+    public static void writeEnum(DataOutput out, Enum<?> value) throws IOException {
+        out.writeByte(value == null ? -1 : value.ordinal());
+    }
+
+    public static <T extends Enum<T>> T readEnum(DataInput in, T[] values) throws IOException {
+        int ordinal = in.readByte();
+        if (ordinal == -1) return null;
+        if (ordinal < 0 || ordinal >= values.length) throw new IOException("Неизвестное значение перечисления: " + ordinal);
+        return values[ordinal];
+    }
+}
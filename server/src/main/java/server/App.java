@@ -15,6 +15,7 @@ import java.util.logging.Logger;
 
 public class App {
     private static int port;
+    private static ServerMode serverMode = ServerMode.BLOCKING;
 
     //database info
     private static String databaseUsername;
@@ -31,16 +32,21 @@ public class App {
     public static Hashtable<Integer, Flat> hashtable;
 
     public static void main(String[] args) {
-        if (args.length != 2) {
-            var msg = "Использование: java -jar jarName <connection_config_file> <port>";
+        if (args.length != 2 && args.length != 3) {
+            var msg = "Использование: java -jar jarName <connection_config_file> <port> [blocking|nio|virtual]";
             UserConsole.printCommandError(msg);
             App.logger.severe(msg);
             return;
         }
         if (!initializeDatabaseConnection(args[0]) || !initializePort(args[1])) return;
+        if (args.length == 3 && !initializeServerMode(args[2])) return;
 
 
         DatabaseHandler databaseHandler = new DatabaseHandler(databaseAddress, databaseUsername, databasePassword);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            App.logger.info(databaseHandler.getPoolStats());
+            databaseHandler.closeConnection();
+        }));
         DatabaseUserManager databaseUserManager = new DatabaseUserManager(databaseHandler);
         DatabaseCollectionManager databaseCollectionManager = new DatabaseCollectionManager(databaseHandler, databaseUserManager);
 
@@ -51,16 +57,27 @@ public class App {
         //RequestHandler requestHandler = new RequestHandler(commandManager, serverConsole);
         HandleRequest handleRequest = new HandleRequest(commandManager, serverConsole);
 
-        Server server = new Server(port, handleRequest, collectionManager);
+        RequestExecutor requestExecutor = RequestExecutor.fromSystemProperties(serverMode == ServerMode.VIRTUAL);
+
+        if (serverMode == ServerMode.NIO) {
+            NioServer nioServer = new NioServer(port, handleRequest, requestExecutor);
+            if (!nioServer.run()) {
+                requestExecutor.shutdown();
+                return;
+            }
+            new Thread(nioServer::controlServer).start();
+            return;
+        }
+
+        Server server = new Server(port, handleRequest, collectionManager, requestExecutor, serverMode);
 
 
-        Thread t1 = new Thread(server::sendResponses);
-        t1.start();
-        Thread t2 = new Thread(server::processClientRequest);
-        t2.start();
-        server.run();
+        if (!server.run()) {
+            requestExecutor.shutdown();
+            return;
+        }
 
-        Thread controllingServerThread = new Thread(() -> server.controlServer(t1, t2));
+        Thread controllingServerThread = new Thread(server::controlServer);
         //controllingServerThread.setDaemon(true);
         controllingServerThread.start();
 
@@ -138,6 +155,24 @@ public class App {
         }
     }
 
+    private static boolean initializeServerMode(String mode) {
+        try {
+            serverMode = ServerMode.valueOf(mode.toUpperCase());
+            if (serverMode == ServerMode.VIRTUAL && !VirtualThreads.isSupported()) {
+                var msg = "Режим virtual требует JDK 21 или новее";
+                UserConsole.printCommandError(msg);
+                App.logger.severe(msg);
+                return false;
+            }
+            return true;
+        } catch (IllegalArgumentException e) {
+            var msg = "Неизвестный режим работы сервера: " + mode;
+            UserConsole.printCommandError(msg);
+            App.logger.severe(msg);
+            return false;
+        }
+    }
+
     private static boolean initializePort(String p) {
         try {
             port = Integer.parseInt(p);
@@ -0,0 +1,272 @@
+package server;
+
+import common.exceptions.OpeningServerSocketException;
+import common.interaction.FrameCodec;
+import common.interaction.Handshake;
+import common.interaction.WireProtocol;
+import common.interaction.requests.Request;
+import common.interaction.responses.Response;
+import server.utility.HandleRequest;
+import server.utility.NioConnection;
+import server.utility.RequestExecutor;
+import server.utility.SerialExecutor;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.*;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Scanner;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Неблокирующий сервер на основе {@link Selector}.
+ * Один поток принимает подключения и раздает их по кругу нескольким потокам ввода-вывода,
+ * каждый из которых обслуживает свой селектор. Простаивающий клиент не занимает поток,
+ * поэтому число клиентов ограничено только числом дескрипторов, а не числом потоков.
+ */
+public class NioServer {
+
+    private static final int IO_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    private final int port;
+    private final HandleRequest handleRequest;
+    private final RequestExecutor requestExecutor;
+    private final Reactor[] reactors = new Reactor[IO_THREADS];
+    private ServerSocketChannel serverChannel;
+    private Selector acceptSelector;
+    private volatile boolean running;
+
+    public NioServer(int port, HandleRequest handleRequest, RequestExecutor requestExecutor) {
+        this.port = port;
+        this.handleRequest = handleRequest;
+        this.requestExecutor = requestExecutor;
+    }
+
+    /**
+     * Открывает серверный канал и запускает потоки приема подключений и ввода-вывода
+     *
+     * @return false, если сервер не удалось запустить
+     */
+    public boolean run() {
+        try {
+            openServerChannel();
+            for (int i = 0; i < reactors.length; i++) {
+                reactors[i] = new Reactor();
+            }
+        } catch (OpeningServerSocketException | IOException ex) {
+            App.logger.severe("Сервер не может быть запущен");
+            return false;
+        }
+        running = true;
+        for (int i = 0; i < reactors.length; i++) {
+            new Thread(reactors[i], "nio-reactor-" + i).start();
+        }
+        new Thread(this::acceptClients, "nio-acceptor").start();
+        App.logger.info("Сервер готов к приему новых клиентов, потоков ввода-вывода: " + IO_THREADS);
+        return true;
+    }
+
+    /**
+     * Принимает новые подключения и передает их потокам ввода-вывода
+     */
+    private void acceptClients() {
+        int next = 0;
+        try {
+            while (running) {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+                SocketChannel channel;
+                while ((channel = serverChannel.accept()) != null) {
+                    channel.configureBlocking(false);
+                    reactors[next].register(channel);
+                    next = (next + 1) % reactors.length;
+                    App.logger.info("Новый клиент подключен");
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) App.logger.severe("Проблемы с подключением на серверном сокете");
+            else App.logger.info("Закрыт серверный сокет");
+        }
+    }
+
+    /**
+     * Разбирает запрос из кадра и ставит его в почтовый ящик соединения, чтобы ответы
+     * уходили в порядке запросов; ответ ставится в очередь записи соединения.
+     * Первый кадр соединения может быть предложением протокола - на него сразу отвечает поток ввода-вывода.
+     */
+    private void processRequest(Reactor reactor, NioConnection connection, byte[] frame) {
+        Request request;
+        try {
+            if (connection.getProtocol() == null) {
+                if (Handshake.isHandshake(frame)) {
+                    connection.setProtocol(Handshake.choose(frame));
+                    connection.enqueue(FrameCodec.frame(Handshake.accept(connection.getProtocol())));
+                    reactor.requestWrite(connection);
+                    return;
+                }
+                //клиент без согласования - старый клиент с сериализацией Java
+                connection.setProtocol(WireProtocol.JAVA_SERIALIZATION);
+            }
+            request = (Request) connection.getProtocol().decode(frame);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            App.logger.warning("Был получен запрос неправильного типа. Прием запросов будет продолжен");
+            return;
+        }
+        connection.getMailbox().execute(() -> {
+            handleRequest.handle(request, response -> sendResponse(reactor, connection, response));
+            App.logger.info("Запрос был обработан сервером");
+        }, () -> sendResponse(reactor, connection, handleRequest.rejectBusy(request)));
+    }
+
+    /**
+     * Ставит ответ в очередь соединения и просит поток ввода-вывода отправить его
+     */
+    private void sendResponse(Reactor reactor, NioConnection connection, Response response) {
+        try {
+            connection.enqueue(FrameCodec.frame(connection.getProtocol().encode(response)));
+            reactor.requestWrite(connection);
+        } catch (IOException e) {
+            App.logger.severe("Не удалось отправить ответ на запрос");
+        }
+    }
+
+    /**
+     * Поток ввода-вывода со своим селектором. Читает кадры запросов и дописывает ответы
+     * для закрепленных за ним соединений.
+     */
+    private class Reactor implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+        private final Queue<NioConnection> writeRequests = new ConcurrentLinkedQueue<>();
+
+        private Reactor() throws IOException {
+            selector = Selector.open();
+        }
+
+        private void register(SocketChannel channel) {
+            newChannels.add(channel);
+            selector.wakeup();
+        }
+
+        private void requestWrite(NioConnection connection) {
+            writeRequests.add(connection);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select();
+                    registerNewChannels();
+                    enableWrites();
+                    Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                    while (iterator.hasNext()) {
+                        SelectionKey key = iterator.next();
+                        iterator.remove();
+                        NioConnection connection = (NioConnection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) readRequests(connection);
+                            if (key.isValid() && key.isWritable()) writeResponses(connection);
+                        } catch (IOException | CancelledKeyException e) {
+                            App.logger.info("Клиент отключен");
+                            connection.close();
+                        }
+                    }
+                } catch (IOException | ClosedSelectorException e) {
+                    if (running) App.logger.severe("Ошибка в работе селектора " + Thread.currentThread().getName());
+                    break;
+                }
+            }
+        }
+
+        private void registerNewChannels() throws IOException {
+            SocketChannel channel;
+            while ((channel = newChannels.poll()) != null) {
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new NioConnection(channel, key, new SerialExecutor(requestExecutor)));
+            }
+        }
+
+        private void enableWrites() {
+            NioConnection connection;
+            while ((connection = writeRequests.poll()) != null) {
+                SelectionKey key = connection.getSelectionKey();
+                if (key.isValid()) key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+
+        private void readRequests(NioConnection connection) throws IOException {
+            for (byte[] frame : connection.readFrames()) {
+                App.logger.info("Получен новый запрос");
+                processRequest(this, connection, frame);
+            }
+        }
+
+        private void writeResponses(NioConnection connection) throws IOException {
+            if (connection.flush()) {
+                connection.getSelectionKey().interestOps(SelectionKey.OP_READ);
+                App.logger.info("Отправлен ответ на запрос");
+            }
+        }
+    }
+
+    /**
+     * Завершает работу сервера
+     */
+    public void stop() {
+        App.logger.info("Завершение работы сервера...");
+        running = false;
+        requestExecutor.shutdown();
+        try {
+            if (serverChannel != null) serverChannel.close();
+            if (acceptSelector != null) acceptSelector.close();
+            for (Reactor reactor : reactors) {
+                if (reactor != null) reactor.selector.close();
+            }
+            App.logger.info("Работа сервера успешно завершена");
+        } catch (IOException ex) {
+            App.logger.severe("Произошла ошибка при завершении работы сервера");
+        }
+    }
+
+    /**
+     * Открытие неблокирующего серверного канала
+     *
+     * @throws OpeningServerSocketException канал не может быть открыт
+     */
+    private void openServerChannel() throws OpeningServerSocketException {
+        App.logger.info("Запуск неблокирующего сервера");
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port));
+            serverChannel.configureBlocking(false);
+            acceptSelector = Selector.open();
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+        } catch (IllegalArgumentException ex) {
+            App.logger.severe("Порт '" + port + "' невалидное значение порта");
+            throw new OpeningServerSocketException();
+        } catch (IOException ex) {
+            App.logger.severe("При попытке использовать порт возникла ошибка " + port);
+            throw new OpeningServerSocketException();
+        }
+        App.logger.info("Сервер успешно запущен");
+    }
+
+    /**
+     * Метод запускает управление сервера через серверную консоль
+     */
+    public void controlServer() {
+        Scanner scanner = new Scanner(System.in);
+        while (true) {
+            String command = scanner.nextLine();
+            if (command.equals("exit")) {
+                System.out.println("Выхожу");
+                stop();
+                System.exit(0);
+            }
+            System.out.println("Неизвестная команда: " + command);
+        }
+    }
+}
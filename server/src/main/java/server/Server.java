@@ -4,6 +4,7 @@ import com.sun.jdi.event.ThreadStartEvent;
 import common.exceptions.ClosingSocketException;
 import common.exceptions.ConnectionErrorException;
 import common.exceptions.OpeningServerSocketException;
+import common.interaction.requests.Request;
 import common.interaction.responses.Response;
 import server.utility.*;
 
@@ -24,31 +25,64 @@ public class Server {
     private final int port;
     private final HandleRequest handleRequest;
     private final CollectionManager collectionManager;
+    private final RequestExecutor requestExecutor;
+    private final ServerMode serverMode;
     private ServerSocket serverSocket;
     private final ForkJoinPool forkJoinPool = new ForkJoinPool(MAX_CLIENTS_CONNECTED_AT_THE_SAME_TIME);
-    private final BlockingQueue<Client> clientsWithRequests = new LinkedBlockingQueue<>();
-    private final BlockingQueue<Client> clientsWithResponses = new LinkedBlockingQueue<>();
+    // в режиме VIRTUAL: виртуальный поток на каждое подключение
+    private ExecutorService connectionExecutor;
 
-    public Server(int port, HandleRequest handleRequest, CollectionManager collectionManager) {
+    public Server(int port, HandleRequest handleRequest, CollectionManager collectionManager,
+                  RequestExecutor requestExecutor, ServerMode serverMode) {
         this.port = port;
         this.handleRequest = handleRequest;
         this.collectionManager = collectionManager;
-
+        this.requestExecutor = requestExecutor;
+        this.serverMode = serverMode;
     }
 
     /**
      * Этот метод играет роль фабрики по "производству" новых клиентов.
      * Как только клиент подключается, метод добавляет его в (мнимый) пул клиентов, от которых
      * сервер готов принимать запросы
+     *
+     * @return false, если сервер не удалось запустить
      */
-    public void run() { //(не)ПОТОК №1 (метод запускается в единственном потоке) (теперь даже необязательно в потоке так как он сразу кончается)
+    public boolean run() { //(не)ПОТОК №1 (метод запускается в единственном потоке) (теперь даже необязательно в потоке так как он сразу кончается)
         try {
             openServerSocket();
         } catch (OpeningServerSocketException ex) {
             App.logger.severe("Сервер не может быть запущен");
+            return false;
+        }
+        if (serverMode == ServerMode.VIRTUAL) {
+            connectionExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+            connectionExecutor.execute(this::acceptClients);
+            return true;
         }
         RecursiveAction recursiveAction = new RecursiveClientReceiver();
         forkJoinPool.execute(recursiveAction);
+        return true;
+    }
+
+    /**
+     * Принимает клиентов в режиме {@link ServerMode#VIRTUAL}: каждое подключение слушается в своем
+     * виртуальном потоке, поэтому ограничения на число одновременно подключенных клиентов нет
+     */
+    private void acceptClients() {
+        App.logger.info("Сервер готов к приему новых клиентов в виртуальных потоках");
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket clientSocket = connectToClient();
+                connectionExecutor.execute(() -> receiveNewClientAndWaitForRequest(clientSocket));
+            } catch (ConnectionErrorException | IOException e) {
+                if (serverSocket.isClosed()) {
+                    App.logger.info("Закрыт серверный сокет");
+                } else {
+                    App.logger.severe("Проблемы с подключением на серверном сокете");
+                }
+            }
+        }
     }
 
     //это что, внутренний класс?
@@ -74,14 +108,15 @@ public class Server {
 
     /**
      * Метод принимает все запросы РОВНО ОТ ОДНОГО КЛИЕНТА. Как только от клиента
-     * приходит запрос, клиент (точнее, его копия) кидается в пул клиентов с запросами
+     * приходит запрос, он ставится в почтовый ящик клиента ({@link SerialExecutor}): запросы одного
+     * клиента обрабатываются и получают ответы строго по порядку, а запросы разных клиентов - параллельно
      *
      * @param clientSocket сокет клиента, от которого будут приниматься запросы
      */
     public void receiveNewClientAndWaitForRequest(Socket clientSocket) { //обрабатывать запросы от одного клиента (вызывается в собственном потоке для кааждого клиента)
         final Client client;
         try {
-            client = new Client(clientSocket);
+            client = new Client(clientSocket, requestExecutor);
 
         } catch (IOException e) {
             App.logger.severe("Ошибка на начальном этапе подключения клиента. Клиент будет отключен");
@@ -91,75 +126,30 @@ public class Server {
 
         while (true) {
             try {
-                client.waitRequest(); //блокируется до получения реквеста
-                clientsWithRequests.put(client);
+                Request request = client.waitRequest(); //блокируется до получения реквеста
                 App.logger.info("Получен новый запрос");
-
+                client.getMailbox().execute(
+                        () -> handleRequest.handle(request, response -> sendResponseToClient(client, response)),
+                        () -> sendResponseToClient(client, handleRequest.rejectBusy(request)));
             } catch (ClassNotFoundException e) {
                 App.logger.warning("Был получен запрос неправильного типа. Прием запросов будет продолжен");
             } catch (IOException e) {
                 App.logger.severe("Ошибка в соединении с клиентом. Клиент будет окончательно отключен");
                 client.disconnectClient();
                 break;
-            } catch (InterruptedException e) {
-                App.logger.warning("Был прерван поток чтения клиентских запросов");
             }
         }
     }
 
     /**
-     * Метод работает с клиентами, у которых уже есть запрос. Он считывает запрос из общей очереди и
-     * отправляет его на обработку в новый поток.
-     */
-    public void processClientRequest() { // ПОТОК № 2
-        while (true) {
-            try {
-                Client clientWithRequest = clientsWithRequests.take();
-                new Thread(() -> {
-                    try {
-                        clientsWithResponses.put(handleRequest.handle(clientWithRequest));
-                        App.logger.info("Запрос был обработан сервером");
-                    } catch (InterruptedException e) {
-                        App.logger.warning("Была прервана обработка запроса от клиента");
-                    }
-                }).start();
-            } catch (InterruptedException e) {
-                App.logger.warning("Был прерван поток обработки клиентских запросов");
-                break;
-            }
-        }
-    }
-
-    /**
-     * Метод работает с клиентами, которые уже получили ответ от сервера. Он считывает ответ из общей очереди и
-     * отправляет его клиенту в новом потоке.
-     */
-    public void sendResponses() { // ПОТОК № 3
-        ExecutorService executor = Executors.newCachedThreadPool();
-        while (true) {
-            try {
-                Client clientWithResponse = clientsWithResponses.take();
-                executor.execute(() -> sendResponseToClient(clientWithResponse));
-            } catch (InterruptedException e) {
-                App.logger.warning("Был прерван поток отправки ответов клиентам");
-                executor.shutdown();
-                break;
-            }
-        }
-    }
-
-    /**
-     * Отправляет ответ переданному клиенту (подразумевается, что у клиента ({@link Client}) уже есть
-     * полученный от сервера ответ, так как в противном случае клиент получит null)
+     * Отправляет ответ переданному клиенту
      *
-     * @param clientWithResponse клиент, которому нужно отправить ответ
+     * @param client         клиент, которому нужно отправить ответ
+     * @param responseToUser ответ
      */
-    public void sendResponseToClient(Client clientWithResponse) {
-        ObjectOutputStream outputStream = clientWithResponse.getClientOutputStream();
-        Response responseToUser = clientWithResponse.getServerResponse();
+    public void sendResponseToClient(Client client, Response responseToUser) {
         try {
-            outputStream.writeObject(responseToUser);
-            outputStream.flush();
+            client.sendResponse(responseToUser);
             App.logger.info("Отправлен ответ на запрос");
         } catch (IOException e) {
             App.logger.severe("Не удалось отправить ответ на запрос");
@@ -254,7 +244,7 @@ public class Server {
     /**
      * Метод запускает управление сервера через серверную консоль
      */
-    public void controlServer(Thread ... threadsToControl) {
+    public void controlServer() {
         Scanner scanner = new Scanner(System.in);
         while (true) {
             String command = scanner.nextLine();
@@ -263,10 +253,8 @@ public class Server {
                     System.out.println("Выхожу");
 
                     forkJoinPool.shutdown();
-
-                    for (Thread t : threadsToControl) {
-                        t.interrupt();
-                    }
+                    if (connectionExecutor != null) connectionExecutor.shutdown();
+                    requestExecutor.shutdown();
 
                     try {
                         Thread.sleep(1000);
@@ -0,0 +1,20 @@
+package server;
+
+/**
+ * Режимы работы сервера, выбираемые при запуске
+ */
+public enum ServerMode {
+    /**
+     * Блокирующий ввод-вывод, отдельный поток на каждого клиента
+     */
+    BLOCKING,
+    /**
+     * Неблокирующий ввод-вывод на селекторах, несколько потоков на всех клиентов
+     */
+    NIO,
+    /**
+     * Блокирующий ввод-вывод, но каждое подключение и каждый запрос выполняются
+     * в своем виртуальном потоке (JDK 21)
+     */
+    VIRTUAL
+}
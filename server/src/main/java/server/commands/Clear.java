@@ -1,6 +1,5 @@
 package server.commands;
 
-import common.data.Flat;
 import common.exceptions.DatabaseHandlingException;
 import common.exceptions.ManualDatabaseEditException;
 import common.exceptions.PermissionDeniedException;
@@ -10,8 +9,7 @@ import common.interaction.User;
 import server.utility.CollectionManager;
 import server.utility.DatabaseCollectionManager;
 
-import java.util.ArrayList;
-import java.util.Map;
+import java.util.List;
 
 /**
  * Команда, очищающая коллекцию
@@ -39,21 +37,12 @@ public class Clear implements Command {
     public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
         if (!args.isEmpty()) throw new WrongArgumentException();
         var builder = new StringBuilder();
-        int size = 0;
         try {
-            ArrayList<Integer> keys = new ArrayList<>();
-            for (Map.Entry<Integer, Flat> entry : collectionManager.getCollection().entrySet()) {
-                keys.add(entry.getKey());
-            }
-            for (Integer k : keys) {
-                Flat flat = collectionManager.getCollection().get(k);
-                if (databaseCollectionManager.checkFlatUserId(flat.getId(), user) && flat.getOwner().equals(user)) {
-                    databaseCollectionManager.deleteFlatById(flat.getId());
-                    collectionManager.removeKey(k);
-                    size += 1;
-                }
-            }
-            if (size == 0) builder.append("Вы не можете очистить коллекцию, так как в ней нет ваших элементов").append("\n");
+            // если у пользователя нет элементов, обращаться к БД не нужно
+            List<Integer> deletedIds = collectionManager.getKeysByOwner(user.getUsername()).isEmpty()
+                    ? List.of() : databaseCollectionManager.deleteFlatsByUser(user);
+            collectionManager.removeIds(deletedIds);
+            if (deletedIds.isEmpty()) builder.append("Вы не можете очистить коллекцию, так как в ней нет ваших элементов").append("\n");
             else builder.append("Все принадлежащие вам элементы коллекции очищены").append("\n");
         } catch (DatabaseHandlingException ex) {
             builder.append("Произошла ошибка при обращении к БД").append("\n");
@@ -3,6 +3,8 @@ package server.commands;
 import common.exceptions.WrongArgumentException;
 import common.interaction.User;
 
+import java.util.function.Consumer;
+
 /**
  * Интерфейс, реализация которого приведена в командах.
  */
@@ -16,6 +18,18 @@ public interface Command {
      */
     String execute(String args, Object objectArgument, User user) throws WrongArgumentException;
 
+    /**
+     * Метод, исполняющий команду с выдачей результата частями. Каждая часть уходит клиенту
+     * отдельным ответом, не дожидаясь формирования остальных.
+     * По умолчанию результат выдается одной частью.
+     *
+     * @param output получатель частей результата
+     * @throws WrongArgumentException см. {@link #execute(String, Object, User)}
+     */
+    default void execute(String args, Object objectArgument, User user, Consumer<String> output) throws WrongArgumentException {
+        output.accept(execute(args, objectArgument, user));
+    }
+
     /**
      * Метод, описывающий работу команды
      *
@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Класс, управляющий вызовом команд.
@@ -48,19 +49,23 @@ public class CommandManager {
         addCommand("clear", new Clear(collectionManager, databaseCollectionManager));
         addCommand("execute_script", new ExecuteScript());
         //addCommand("exit", new Exit(console));
+        addCommand("filter_in_box", new FilterInBox(collectionManager));
         addCommand("filter_less_than_house", new FilterLessThanHouse(collectionManager));
         addCommand("help", new Help(this));
         addCommand("history", new History(this));
         addCommand("info", new Info(collectionManager));
         addCommand("update", new Update(collectionManager, databaseCollectionManager));
         addCommand("insert", new Insert(collectionManager, databaseCollectionManager));
+        addCommand("insert_many", new InsertMany(collectionManager, databaseCollectionManager));
+        addCommand("nearest", new Nearest(collectionManager));
+        addCommand("import", new Import(collectionManager, databaseCollectionManager));
         addCommand("print_field_ascending_house", new PrintFieldAscendingHouse(collectionManager));
         addCommand("remove_all_by_view", new RemoveAllByView(collectionManager, databaseCollectionManager));
         addCommand("remove_greater_key", new RemoveGreaterKey(collectionManager,databaseCollectionManager));
         addCommand("remove_key", new RemoveKey(collectionManager, databaseCollectionManager));
         addCommand("remove_lower_key", new RemoveLowerKey(collectionManager, databaseCollectionManager));
         //addCommand("save", new Save(collectionManager, console, fileManager));
-        addCommand("show", new Show(collectionManager, databaseCollectionManager));
+        addCommand("show", new Show(collectionManager));
         addCommand("register", new Register(databaseUserManager));
         addCommand("login", new Login(databaseUserManager));
     }
@@ -107,20 +112,33 @@ public class CommandManager {
      * метод вызывает команду на исполнение
      */
     public String executeCommand(String commandName, String args, Object objectArgument, User user) throws InvalidCommandException, WrongArgumentException {
+        StringBuilder answer = new StringBuilder();
+        executeCommand(commandName, args, objectArgument, user, answer::append);
+        return answer.toString();
+    }
+
+    /**
+     * метод вызывает команду на исполнение, результат выдается частями
+     *
+     * @param output получатель частей результата
+     */
+    public void executeCommand(String commandName, String args, Object objectArgument, User user, Consumer<String> output) throws InvalidCommandException, WrongArgumentException {
 
-        if (commandName.equals("")) return "";
+        if (commandName.equals("")) {
+            output.accept("");
+            return;
+        }
         Command command = commands.get(commandName);
 
         if (command == null) throw new InvalidCommandException("введена несуществующая команда");
 
-        String answer = command.execute(Objects.requireNonNullElse(args, ""), objectArgument, user);
+        command.execute(Objects.requireNonNullElse(args, ""), objectArgument, user, output);
 
         historyList.add(commandName);
 
         if (historyList.size() > maxHistorySize) {
             historyList.remove(0);
         }
-        return answer;
     }
 
     /**
@@ -0,0 +1,63 @@
+package server.commands;
+
+import common.exceptions.WrongArgumentException;
+import common.interaction.User;
+import server.utility.CollectionManager;
+import server.utility.FlatRecord;
+
+import java.util.List;
+
+/**
+ * Класс команды "filter_in_box": выводит элементы, координаты которых лежат в заданном прямоугольнике.
+ * Элементы находятся через индекс координат {@link CollectionManager} без просмотра всей коллекции.
+ */
+public class FilterInBox implements Command {
+    private final CollectionManager collectionManager;
+
+    /**
+     * Конструктор класса
+     *
+     * @param collectionManager хранит ссылку на объект CollectionManager
+     */
+    public FilterInBox(CollectionManager collectionManager) {
+        this.collectionManager = collectionManager;
+    }
+
+    /**
+     * Метод, исполняющий команду. Аргументы: {@code <min_x> <min_y> <max_x> <max_y>}, границы включаются
+     */
+    @Override
+    public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
+        String[] bounds = args.trim().split("\\s+");
+        if (bounds.length != 4) throw new WrongArgumentException();
+        int minX;
+        int minY;
+        int maxX;
+        int maxY;
+        try {
+            minX = Integer.parseInt(bounds[0]);
+            minY = Integer.parseInt(bounds[1]);
+            maxX = Integer.parseInt(bounds[2]);
+            maxY = Integer.parseInt(bounds[3]);
+        } catch (NumberFormatException e) {
+            throw new WrongArgumentException("Аргументы должны быть целыми числами.");
+        }
+        if (minX > maxX || minY > maxY) throw new WrongArgumentException("Минимальные границы не должны превышать максимальные.");
+
+        List<FlatRecord> flats = collectionManager.getFlatsInBox(minX, minY, maxX, maxY);
+        if (flats.isEmpty()) return "В заданном прямоугольнике нет элементов\n";
+        var builder = new StringBuilder();
+        flats.forEach(flat -> builder.append("Квартира: ").append(flat.name())
+                .append(" (").append(flat.coordinates().x()).append("; ").append(flat.coordinates().y()).append(");\n"));
+        return builder.toString();
+    }
+
+    /**
+     * @return описание команды
+     * @see Command
+     */
+    @Override
+    public String getDescription() {
+        return "выводит элементы, координаты которых лежат в прямоугольнике <min_x> <min_y> <max_x> <max_y>";
+    }
+}
@@ -36,38 +36,15 @@ public class FilterLessThanHouse implements Command {
     public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
         if (!args.isEmpty()) throw new WrongArgumentException();
         var builder = new StringBuilder();
-        try {
-            int year;
-            Long numberOfFloors;
-            long numberOfFlatsOnFloor;
-            Long numberOfLifts;
-
-            if (objectArgument == null) {
-                return "Передан дом == NULL\n";
-            }
-            if (objectArgument instanceof House house) { //pattern variable
-                year = house.getYear();
-                numberOfFloors = house.getNumberOfFloors();
-                numberOfFlatsOnFloor = house.getNumberOfFlatsOnFloor();
-                numberOfLifts = house.getNumberOfLifts();
-            } else {
-                throw new WrongArgumentException("Объект аргумента не соответствует типу House");
-            }
-            collectionManager.getCollection().values().stream()
-                    .filter(flat -> flat.getHouse() != null
-                            && flat.getHouse().getYear() < year
-                            && flat.getHouse().getNumberOfFloors() != null && numberOfFloors != null && flat.getHouse().getNumberOfFloors() < numberOfFloors
-                            && flat.getHouse().getNumberOfFlatsOnFloor() < numberOfFlatsOnFloor
-                            && flat.getHouse().getNumberOfLifts() != null && numberOfLifts != null && flat.getHouse().getNumberOfLifts() < numberOfLifts
-                    )
-                    .sorted(new SortByCoordinates())
-                    .forEach(flat -> builder.append("Квартира: ").append(flat.getName()).append(";\n"));
-
-        } catch (NumberFormatException e) {
-            throw new WrongArgumentException("Аргумент должен быть числом.");
-        } catch (ArrayIndexOutOfBoundsException ex) {
-            builder.append("Ошибка: Не указаны аргументы команды, необходимо ввести 4 аргумента через пробел\n");
+        if (objectArgument == null) {
+            return "Передан дом == NULL\n";
+        }
+        if (!(objectArgument instanceof House house)) { //pattern variable
+            throw new WrongArgumentException("Объект аргумента не соответствует типу House");
         }
+        collectionManager.getFlatsWithHouseLessThan(house).stream()
+                .sorted(new SortByCoordinates())
+                .forEach(flat -> builder.append("Квартира: ").append(flat.name()).append(";\n"));
         return builder.toString();
     }
 
@@ -0,0 +1,62 @@
+package server.commands;
+
+import common.data.Flat;
+import common.exceptions.DatabaseHandlingException;
+import common.exceptions.WrongArgumentException;
+import common.interaction.User;
+import server.utility.CollectionManager;
+import server.utility.DatabaseCollectionManager;
+import server.utility.FlatImportParser;
+
+import java.util.List;
+
+/**
+ * Класс команды, которая загружает в коллекцию элементы из файла в формате JSON или CSV
+ */
+public class Import implements Command {
+    private final CollectionManager collectionManager;
+    private final DatabaseCollectionManager databaseCollectionManager;
+
+    /**
+     * Конструктор класса.
+     *
+     * @param collectionManager Хранит ссылку на объект CollectionManager.
+     */
+    public Import(CollectionManager collectionManager, DatabaseCollectionManager databaseCollectionManager) {
+        this.collectionManager = collectionManager;
+        this.databaseCollectionManager = databaseCollectionManager;
+    }
+
+    /**
+     * Метод, исполняющий команду. Строковый аргумент - имя файла, объектный - его содержимое.
+     * Элементы добавляются все вместе или, при ошибке в любом из них, не добавляются совсем
+     */
+    @Override
+    public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
+        if (!(objectArgument instanceof String content)) throw new WrongArgumentException("Не передано содержимое файла");
+        var builder = new StringBuilder();
+        try {
+            List<Flat> flats = FlatImportParser.parse(content);
+            if (flats.isEmpty()) {
+                builder.append("В файле нет элементов").append("\n");
+            } else {
+                collectionManager.insertAll(databaseCollectionManager.copyFlats(flats, user));
+                builder.append("Импортировано элементов: ").append(flats.size()).append("\n");
+            }
+        } catch (IllegalArgumentException ex) {
+            builder.append("Ошибка в файле ").append(args).append(": ").append(ex.getMessage()).append("\n");
+        } catch (DatabaseHandlingException ex) {
+            builder.append("Произошла ошибка при обращении к базе данных!\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return Возвращает описание данной команды.
+     * @see Command
+     */
+    @Override
+    public String getDescription() {
+        return "добавляет элементы из файла в формате JSON или CSV (" + FlatImportParser.CSV_HEADER + ")";
+    }
+}
@@ -20,7 +20,7 @@ public class Info implements Command {
     }
 
     /**
-     * Метод, исполняющий команду. Выводит описание коллекции HashTable
+     * Метод, исполняющий команду. Выводит описание коллекции и ее сводные показатели
      */
     @Override
     public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
@@ -0,0 +1,61 @@
+package server.commands;
+
+import common.data.Flat;
+import common.exceptions.DatabaseHandlingException;
+import common.exceptions.WrongArgumentException;
+import common.interaction.User;
+import server.utility.CollectionManager;
+import server.utility.DatabaseCollectionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Класс команды, которая добавляет в коллекцию сразу несколько элементов.
+ * Клиент отправляет ее вместо идущих подряд в скрипте команд insert
+ */
+public class InsertMany implements Command {
+    private final CollectionManager collectionManager;
+    private final DatabaseCollectionManager databaseCollectionManager;
+
+    /**
+     * Конструктор класса.
+     *
+     * @param collectionManager Хранит ссылку на объект CollectionManager.
+     */
+    public InsertMany(CollectionManager collectionManager, DatabaseCollectionManager databaseCollectionManager) {
+        this.collectionManager = collectionManager;
+        this.databaseCollectionManager = databaseCollectionManager;
+    }
+
+    /**
+     * Метод, исполняющий команду. Объектный аргумент - список элементов
+     */
+    @Override
+    public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
+        if (!args.isEmpty()) throw new WrongArgumentException();
+        if (!(objectArgument instanceof List<?> list)) throw new WrongArgumentException("Переданный объект не является списком элементов");
+        List<Flat> flats = new ArrayList<>(list.size());
+        for (Object element : list) {
+            if (!(element instanceof Flat flat)) throw new WrongArgumentException("Переданный объект не соответствует типу Flat");
+            flats.add(flat);
+        }
+        var builder = new StringBuilder();
+        try {
+            collectionManager.insertAll(databaseCollectionManager.insertFlats(flats, user));
+            builder.append("Добавлено элементов: ").append(flats.size()).append("\n");
+        } catch (DatabaseHandlingException ex) {
+            builder.append("Произошла ошибка при обращении к базе данных!\n");
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return Возвращает описание данной команды.
+     * @see Command
+     */
+    @Override
+    public String getDescription() {
+        return "добавляет несколько элементов одним запросом (используется при выполнении скрипта)";
+    }
+}
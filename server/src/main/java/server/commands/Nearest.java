@@ -0,0 +1,68 @@
+package server.commands;
+
+import common.exceptions.WrongArgumentException;
+import common.interaction.User;
+import server.utility.CollectionManager;
+import server.utility.FlatRecord;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс команды "nearest": выводит заданное количество элементов, ближайших к точке.
+ * Элементы находятся через индекс координат {@link CollectionManager} без просмотра всей коллекции.
+ */
+public class Nearest implements Command {
+    /**
+     * Наибольшее количество элементов в ответе
+     */
+    public static final int MAX_COUNT = 1000;
+
+    private final CollectionManager collectionManager;
+
+    /**
+     * Конструктор класса
+     *
+     * @param collectionManager хранит ссылку на объект CollectionManager
+     */
+    public Nearest(CollectionManager collectionManager) {
+        this.collectionManager = collectionManager;
+    }
+
+    /**
+     * Метод, исполняющий команду. Аргументы: {@code <x> <y> <count>}
+     */
+    @Override
+    public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
+        String[] values = args.trim().split("\\s+");
+        if (values.length != 3) throw new WrongArgumentException();
+        int x;
+        int y;
+        int count;
+        try {
+            x = Integer.parseInt(values[0]);
+            y = Integer.parseInt(values[1]);
+            count = Integer.parseInt(values[2]);
+        } catch (NumberFormatException e) {
+            throw new WrongArgumentException("Аргументы должны быть целыми числами.");
+        }
+        if (count <= 0 || count > MAX_COUNT) throw new WrongArgumentException("Количество элементов должно быть от 1 до " + MAX_COUNT + ".");
+
+        List<Map.Entry<FlatRecord, Double>> nearest = collectionManager.getNearestFlats(x, y, count);
+        if (nearest.isEmpty()) return "Коллекция пуста\n";
+        var builder = new StringBuilder();
+        nearest.forEach(entry -> builder.append("Квартира: ").append(entry.getKey().name())
+                .append(" (").append(entry.getKey().coordinates().x()).append("; ").append(entry.getKey().coordinates().y())
+                .append("), расстояние ").append(String.format("%.2f", entry.getValue())).append(";\n"));
+        return builder.toString();
+    }
+
+    /**
+     * @return описание команды
+     * @see Command
+     */
+    @Override
+    public String getDescription() {
+        return "выводит <count> элементов, ближайших к точке <x> <y>";
+    }
+}
@@ -3,7 +3,7 @@ package server.commands;
 import common.exceptions.WrongArgumentException;
 import common.interaction.User;
 import server.utility.CollectionManager;
-import server.utility.SortByHouse;
+import server.utility.FlatRecord;
 
 /**
  * Класс команды "print_field_ascending_house".
@@ -33,12 +33,10 @@ public class PrintFieldAscendingHouse implements Command {
     public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
         if (!args.isEmpty()) throw new WrongArgumentException();
         var builder = new StringBuilder();
-        collectionManager.getCollection().values().stream()
-                .sorted(new SortByHouse())
-                .forEach(flat -> {
-                    String houseName = flat.getHouse() == null ? "null" : flat.getHouse().getName();
-                    builder.append("Квартира: ").append(flat.getName()).append(" в доме ").append(houseName).append("\n");
-                });
+        for (FlatRecord flat : collectionManager.snapshot().getFlatsByHouse()) {
+            String houseName = flat.house() == null ? "null" : flat.house().name();
+            builder.append("Квартира: ").append(flat.name()).append(" в доме ").append(houseName).append("\n");
+        }
         return builder.toString();
     }
 
@@ -1,6 +1,5 @@
 package server.commands;
 
-import common.data.Flat;
 import common.data.View;
 import common.exceptions.DatabaseHandlingException;
 import common.exceptions.WrongArgumentException;
@@ -8,7 +7,7 @@ import common.interaction.User;
 import server.utility.CollectionManager;
 import server.utility.DatabaseCollectionManager;
 
-import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Класс команды, удаляющая элементы вид которых, соответствует заданному
@@ -36,28 +35,13 @@ public class RemoveAllByView implements Command {
     public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
         if (args.isEmpty()) throw new WrongArgumentException();
         var builder = new StringBuilder();
-        int size = 0;
         try {
             View view = args.equals("null") ? null : View.valueOf(args);
-            ArrayList<Integer> keys = new ArrayList<>();
-            long count = collectionManager.getCollection().entrySet().stream()
-                    .filter(entry -> {
-                        if (entry.getValue().getView() == null && view == null) return true;
-                        if (entry.getValue().getView() == null) return false;
-                        return entry.getValue().getView().equals(view);
-                    })
-                    .peek(entry -> keys.add(entry.getKey()))
-                    .count();
-            for (Integer k : keys) {
-                Flat flat = collectionManager.getCollection().get(k);
-                if (databaseCollectionManager.checkFlatUserId(flat.getId(), user) && flat.getOwner().equals(user)) {
-                    databaseCollectionManager.deleteFlatById(flat.getId());
-                    collectionManager.removeKey(k);
-                    size += 1;
-                }
-            }
-            if (size == 0) builder.append("В коллекции нет элементов принадлежащих вам с заданным значением\n");
-            else builder.append("Было очищено ").append(count).append(" элементов\n");
+            List<Integer> deletedIds = collectionManager.getKeysByOwnerAndView(user.getUsername(), view).isEmpty()
+                    ? List.of() : databaseCollectionManager.deleteFlatsByUserAndView(user, view);
+            collectionManager.removeIds(deletedIds);
+            if (deletedIds.isEmpty()) builder.append("В коллекции нет элементов принадлежащих вам с заданным значением\n");
+            else builder.append("Было очищено ").append(deletedIds.size()).append(" элементов\n");
         } catch (IllegalArgumentException ex) {
             builder.append("Ошибка: Выбранной константы нет в перечислении.\n");
             builder.append("Список всех констант:\n");
@@ -1,13 +1,12 @@
 package server.commands;
 
-import common.data.Flat;
 import common.exceptions.DatabaseHandlingException;
 import common.exceptions.WrongArgumentException;
 import common.interaction.User;
 import server.utility.CollectionManager;
 import server.utility.DatabaseCollectionManager;
 
-import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -34,23 +33,13 @@ public class RemoveGreaterKey implements Command {
     public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
         if (args.isEmpty()) throw new WrongArgumentException();
         var builder = new StringBuilder();
-        int size = 0;
         try {
             int key = Integer.parseInt(args);
-            ArrayList<Integer> keys = new ArrayList<>();
-            long  count = collectionManager.getCollection().entrySet().stream()
-                    .filter(entry -> entry.getKey() > key)
-                    .peek(entry -> keys.add(entry.getKey())).count();
-            for (Integer k : keys) {
-                Flat flat = collectionManager.getCollection().get(k);
-                if (databaseCollectionManager.checkFlatUserId(flat.getId(), user) && flat.getOwner().equals(user)) {
-                    databaseCollectionManager.deleteFlatById(flat.getId());
-                    collectionManager.removeKey(k);
-                    size += 1;
-                }
-            }
-            if (size == 0) builder.append("В коллекции нет элементов принадлежащих вам с значением больше заданного").append("\n");
-            else builder.append("Было очищено ").append(count).append(" элементов").append("\n");
+            List<Integer> deletedIds = collectionManager.getKeysByOwner(user.getUsername()).tailSet(key, false).isEmpty()
+                    ? List.of() : databaseCollectionManager.deleteFlatsByUserWithIdGreaterThan(user, key);
+            collectionManager.removeIds(deletedIds);
+            if (deletedIds.isEmpty()) builder.append("В коллекции нет элементов принадлежащих вам с значением больше заданного").append("\n");
+            else builder.append("Было очищено ").append(deletedIds.size()).append(" элементов").append("\n");
         } catch (IndexOutOfBoundsException ex) {
             builder.append("Ошибка: Не указан аргумент команды").append("\n");
         } catch (NumberFormatException ex) {
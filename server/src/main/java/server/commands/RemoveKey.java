@@ -1,6 +1,5 @@
 package server.commands;
 
-import common.data.Flat;
 import common.exceptions.DatabaseHandlingException;
 import common.exceptions.ManualDatabaseEditException;
 import common.exceptions.PermissionDeniedException;
@@ -8,6 +7,7 @@ import common.exceptions.WrongArgumentException;
 import common.interaction.User;
 import server.utility.CollectionManager;
 import server.utility.DatabaseCollectionManager;
+import server.utility.FlatRecord;
 
 /**
  * Класс команды, которая удаляет элемент
@@ -35,10 +35,10 @@ public class RemoveKey implements Command {
         var builder = new StringBuilder();
         try {
             int key = Integer.parseInt(args);
-            if (collectionManager.containsKey(key)) {
-                Flat flatToRemove = collectionManager.getCollection().get(key);
-                if (!flatToRemove.getOwner().equals(user)) throw new PermissionDeniedException();
-                if (!databaseCollectionManager.checkFlatUserId(flatToRemove.getId(), user)) throw new ManualDatabaseEditException();
+            FlatRecord flatToRemove = collectionManager.getFlat(key);
+            if (flatToRemove != null) {
+                if (!user.getUsername().equals(flatToRemove.owner())) throw new PermissionDeniedException();
+                if (!databaseCollectionManager.checkFlatUserId(flatToRemove.id(), user)) throw new ManualDatabaseEditException();
                 databaseCollectionManager.deleteFlatById(key);
                 collectionManager.removeKey(Integer.parseInt(args));
                 builder.append("Элемент коллекции был удален.").append("\n");
@@ -1,21 +1,27 @@
 package server.commands;
 
-import common.data.Flat;
 import common.exceptions.WrongArgumentException;
 import common.interaction.User;
 import server.utility.CollectionManager;
-import server.utility.DatabaseCollectionManager;
+import server.utility.FlatRecord;
 
-import java.sql.SQLException;
-import java.util.Hashtable;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Consumer;
 
 /**
- * Класс команды, которая показывает содержимое коллекции
+ * Класс команды, которая показывает содержимое коллекции.
+ * Команда не обращается к БД: элементы выводятся вместе с их владельцами.
+ * Элементы выдаются в порядке возрастания ключа частями по {@link #PART_SIZE} штук, каждая часть
+ * уходит клиенту отдельным ответом. Элементы читаются из опубликованной версии коллекции без блокировок,
+ * поэтому все части ответа соответствуют одному моменту. Команда с аргументами {@code <after_key> <limit>}
+ * выводит одну страницу: не более limit элементов с ключами больше after_key; ее начало находится за O(log n).
  */
 public class Show implements Command {
-
-    private final DatabaseCollectionManager databaseCollectionManager;
+    /**
+     * Количество элементов в одной части ответа
+     */
+    public static final int PART_SIZE = 20;
 
     private final CollectionManager collectionManager;
 
@@ -24,33 +30,63 @@ public class Show implements Command {
      *
      * @param collectionManager хранит ссылку на объект CollectionManager
      */
-    public Show(CollectionManager collectionManager, DatabaseCollectionManager databaseCollectionManager) {
-        this.databaseCollectionManager = databaseCollectionManager;
+    public Show(CollectionManager collectionManager) {
         this.collectionManager = collectionManager;
     }
 
     /**
-     * Метод, исполняющий команду. Выводит содержимое коллекции
+     * Метод, исполняющий команду. Выводит содержимое коллекции одной строкой
      */
     @Override
     public String execute(String args, Object objectArgument, User user) throws WrongArgumentException {
-        if (!args.isEmpty()) throw new WrongArgumentException();
-        Hashtable<Integer, Flat> hashtable = collectionManager.getCollection();
+        StringBuilder builder = new StringBuilder();
+        execute(args, objectArgument, user, builder::append);
+        return builder.toString();
+    }
+
+    /**
+     * Метод, исполняющий команду. Выводит содержимое коллекции частями
+     */
+    @Override
+    public void execute(String args, Object objectArgument, User user, Consumer<String> output) throws WrongArgumentException {
+        int afterKey = Integer.MIN_VALUE;
+        int limit = Integer.MAX_VALUE;
+        if (!args.isEmpty()) {
+            String[] page = args.trim().split("\\s+");
+            try {
+                if (page.length != 2) throw new WrongArgumentException();
+                afterKey = Integer.parseInt(page[0]);
+                limit = Integer.parseInt(page[1]);
+            } catch (NumberFormatException e) {
+                throw new WrongArgumentException();
+            }
+            if (limit <= 0) throw new WrongArgumentException();
+        }
+
+        Iterator<Map.Entry<Integer, FlatRecord>> entries = collectionManager.snapshot().getEntriesAfter(afterKey).iterator();
+        if (!entries.hasNext()) {
+            output.accept(args.isEmpty() ? "Коллекция пуста\n" : "Элементов после ключа " + afterKey + " нет\n");
+            return;
+        }
         var builder = new StringBuilder();
-        if (hashtable.size() == 0) {
-            builder.append("Коллекция пуста\n");
-        } else {
-            AtomicInteger number = new AtomicInteger(1);
-            hashtable.forEach((key, flat) -> {
-                try {
-                    builder.append("\nЭлемент №").append(number.getAndIncrement()).append("\n")
-                            .append(flat.toString()).append("\n").append("User:").append(databaseCollectionManager.getUsernameByFlatId(flat.getId())).append("\n");
-                } catch (SQLException e) {
-                    builder.append("Произошла ошибка при обращении к БД").append("\n");
-                }
-            });
+        int number = 0;
+        int lastKey = afterKey;
+        while (number < limit && entries.hasNext()) {
+            Map.Entry<Integer, FlatRecord> entry = entries.next();
+            FlatRecord flat = entry.getValue();
+            builder.append("\nЭлемент №").append(++number).append(" (ключ ").append(entry.getKey()).append(")\n")
+                    .append(flat.toString()).append("\n")
+                    .append("User:").append(flat.owner()).append("\n");
+            lastKey = entry.getKey();
+            if (number % PART_SIZE == 0) {
+                output.accept(builder.toString());
+                builder.setLength(0);
+            }
         }
-        return builder.toString();
+        if (!args.isEmpty() && entries.hasNext()) {
+            builder.append("\nСледующая страница: show ").append(lastKey).append(" ").append(limit).append("\n");
+        }
+        if (builder.length() > 0) output.accept(builder.toString());
     }
 
     /**
@@ -59,6 +95,6 @@ public class Show implements Command {
      */
     @Override
     public String getDescription() {
-        return "Показывает содержимое всех элементов коллекции";
+        return "Показывает содержимое всех элементов коллекции; show <after_key> <limit> - одну страницу";
     }
 }
@@ -10,6 +10,7 @@ import common.exceptions.WrongArgumentException;
 import common.interaction.User;
 import server.utility.CollectionManager;
 import server.utility.DatabaseCollectionManager;
+import server.utility.FlatRecord;
 
 import java.util.Arrays;
 
@@ -40,23 +41,16 @@ public class Update implements Command {
         try {
             int id = Integer.parseInt(args);
             int key = collectionManager.getKey(id);
-            if (collectionManager.containsKey(key)) {
+            FlatRecord oldFlat = collectionManager.getFlat(key);
+            if (oldFlat != null) {
 
                 if (objectArgument instanceof Flat newFlat) {
-                    Flat oldFlat = collectionManager.getCollection().get(key);
-                    if (!oldFlat.getOwner().equals(user)) throw new PermissionDeniedException();
-                    if (!databaseCollectionManager.checkFlatUserId(oldFlat.getId(), user)) throw new ManualDatabaseEditException();
+                    if (!user.getUsername().equals(oldFlat.owner())) throw new PermissionDeniedException();
+                    if (!databaseCollectionManager.checkFlatUserId(oldFlat.id(), user)) throw new ManualDatabaseEditException();
 
                     databaseCollectionManager.updateFlatById(id, newFlat);
 
-                    if (newFlat.getName() != null) oldFlat.setName(newFlat.getName());
-                    if (newFlat.getCoordinates() != null) oldFlat.setCoordinates(newFlat.getCoordinates());
-                    if (newFlat.getArea() != -1) oldFlat.setArea(newFlat.getArea());
-                    if (newFlat.getNumberOfRooms() != -1) oldFlat.setNumberOfRooms(newFlat.getNumberOfRooms());
-                    if (newFlat.getNumberOfBathrooms() != -1) oldFlat.setNumberOfBathrooms(newFlat.getNumberOfBathrooms());
-                    if (newFlat.getFurnish() != null) oldFlat.setFurnish(newFlat.getFurnish());
-                    if (newFlat.getView() != null) oldFlat.setView(newFlat.getView());
-                    if (newFlat.getHouse() != null) oldFlat.setHouse(newFlat.getHouse());
+                    collectionManager.update(key, newFlat);
 
                     builder.append("Элемент обновлен").append("\n");
                 } else {
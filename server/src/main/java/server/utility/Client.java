@@ -1,52 +1,63 @@
 package server.utility;
 
+import common.interaction.FrameCodec;
+import common.interaction.Handshake;
+import common.interaction.WireProtocol;
 import common.interaction.requests.Request;
 import common.interaction.responses.Response;
 
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.*;
 import java.net.Socket;
 
 
-public class Client implements Cloneable {
+public class Client {
 
     private final Socket clientSocket;
-    private final ObjectInputStream clientInputStream;
-    private final ObjectOutputStream clientOutputStream;
+    private final DataInputStream clientInputStream;
+    private final DataOutputStream clientOutputStream;
+    private final SerialExecutor mailbox;
+    private volatile WireProtocol protocol;
 
-    private Request request;
-    private Response serverResponse;
-
-    public Client(Socket clientSocket) throws IOException {
+    public Client(Socket clientSocket, RequestExecutor requestExecutor) throws IOException {
         this.clientSocket = clientSocket;
-        clientOutputStream = new ObjectOutputStream(clientSocket.getOutputStream());
-        clientInputStream = new ObjectInputStream(clientSocket.getInputStream());
+        clientOutputStream = new DataOutputStream(new BufferedOutputStream(clientSocket.getOutputStream()));
+        clientInputStream = new DataInputStream(new BufferedInputStream(clientSocket.getInputStream()));
+        mailbox = new SerialExecutor(requestExecutor);
     }
 
-    @Override
-    public Client clone() throws CloneNotSupportedException {
-        return (Client) super.clone();
-    }
     //кидает ошибку если клиент всё
-    public void waitRequest() throws IOException, ClassNotFoundException {
-        request = (Request) clientInputStream.readObject(); //блокируется
-    }
-
-    public Request getRequest() {
-        return request;
-    }
-
-    public ObjectOutputStream getClientOutputStream() {
-        return clientOutputStream;
+    public Request waitRequest() throws IOException, ClassNotFoundException {
+        byte[] body = FrameCodec.readFrame(clientInputStream); //блокируется
+        if (protocol == null) {
+            if (Handshake.isHandshake(body)) {
+                protocol = Handshake.choose(body);
+                synchronized (this) {
+                    FrameCodec.writeFrame(clientOutputStream, Handshake.accept(protocol));
+                }
+                body = FrameCodec.readFrame(clientInputStream);
+            } else {
+                //клиент без согласования - старый клиент с сериализацией Java
+                protocol = WireProtocol.JAVA_SERIALIZATION;
+            }
+        }
+        return (Request) protocol.decode(body);
     }
 
-    public void setServerResponse(Response serverResponse) {
-        this.serverResponse = serverResponse;
+    /**
+     * @return очередь, в которой исполняются запросы этого клиента
+     */
+    public SerialExecutor getMailbox() {
+        return mailbox;
     }
 
-    public Response getServerResponse() {
-        return serverResponse;
+    /**
+     * Отправляет ответ клиенту
+     *
+     * @param serverResponse ответ
+     * @throws IOException ошибка записи в сокет
+     */
+    public synchronized void sendResponse(Response serverResponse) throws IOException {
+        FrameCodec.writeFrame(clientOutputStream, protocol.encode(serverResponse));
     }
 
     public void disconnectClient() {
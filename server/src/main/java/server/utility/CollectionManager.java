@@ -1,6 +1,7 @@
 package server.utility;
 
 import common.data.Flat;
+import common.data.House;
 import common.data.View;
 import common.exceptions.DatabaseHandlingException;
 import common.utility.Console;
@@ -10,16 +11,59 @@ import server.App;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
- * Класс отвечающий за работу с коллекциями
+ * Класс отвечающий за работу с коллекциями.
+ * Коллекция хранится как неизменяемая версия {@link CollectionSnapshot}: элементы в порядке ключа,
+ * элементы в порядке дома и сводные показатели. Писатели под общей блокировкой записи строят
+ * следующую версию (она разделяет с предыдущей все, кроме O(log n) узлов на каждый измененный элемент)
+ * и в конце изменения публикуют ее через volatile-ссылку. Читатели берут опубликованную версию без
+ * блокировок, видят коллекцию целиком на один момент и не задерживают писателей.
+ * <p>
+ * Вместе с коллекцией поддерживаются изменяемые индексы. Запросы к индексам домов и координат читают
+ * их оптимистично: результат принимается, только если за время запроса не начиналось ни одно изменение,
+ * иначе запрос повторяется, а после нескольких неудач выполняется просмотром опубликованной версии.
+ * <p>
+ * Элементы хранятся как неизменяемые {@link FlatRecord}: {@link Flat} переводится в запись при добавлении
+ * и обратно при выдаче в формате обмена ({@link #getCollection()}), а {@link #update(int, Flat)} заменяет
+ * запись новой, переиспользуя неизмененные вложенные объекты.
  */
 public class CollectionManager {
 
-    // Коллекция, с которой осуществляется работа
-    private Hashtable<Integer, Flat> hashtable;
+    private static final Set<Integer> allId = ConcurrentHashMap.newKeySet();
+
+    // Блокировка для всех изменений коллекции и индексов
+    private final Object writeLock = new Object();
+    // Ключ элемента по его id; ключ совпадает с id, но индекс не полагается на это
+    private final Map<Integer, Integer> keysById = new ConcurrentHashMap<>();
+    // Ключи элементов по виду; элементы без вида - в отдельном наборе
+    private final Map<View, NavigableSet<Integer>> keysByView = new EnumMap<>(View.class);
+    private final NavigableSet<Integer> keysWithoutView = new ConcurrentSkipListSet<>();
+    // Ключи элементов по имени владельца
+    private final Map<String, NavigableSet<Integer>> keysByOwner = new ConcurrentHashMap<>();
+    // Ключи элементов по дому для запросов "дом меньше заданного"
+    private final HouseDominanceIndex houseIndex = new HouseDominanceIndex();
+    // Ключи элементов по координатам для запросов по прямоугольнику и ближайших
+    private final CoordinatesGridIndex coordinatesIndex = new CoordinatesGridIndex();
+    // Опубликованная версия коллекции, с которой работают читатели
+    private volatile CollectionSnapshot snapshot = CollectionSnapshot.EMPTY;
+    // Версия, которую строит текущее изменение; доступна только под блокировкой записи
+    private CollectionSnapshot draft;
+    // Счетчик изменений: нечетный, пока индексы изменяются, четный, когда они соответствуют snapshot
+    private volatile long writes;
+    // Сколько раз запрос к индексу повторяется, прежде чем выполниться просмотром версии
+    private static final int INDEX_READ_ATTEMPTS = 3;
+
+    {
+        for (View view : View.values()) {
+            keysByView.put(view, new ConcurrentSkipListSet<>());
+        }
+    }
 
-    private static final HashSet<Integer> allId = new HashSet<>();
     // Время инициализации коллекции
     private LocalDateTime collectionInitialization;
 
@@ -34,13 +78,8 @@ public class CollectionManager {
      * Конструктор, создающий новый объект менеджера коллекции
      */
 
-    public CollectionManager(Hashtable<Integer, Flat> hashtable) {
-        if (hashtable != null) this.hashtable = hashtable;
-        else this.hashtable = new Hashtable<>();
-
-        for (Flat flat : this.hashtable.values()) {
-            allId.add(flat.getId());
-        }
+    public CollectionManager(Map<Integer, Flat> flats) {
+        if (flats != null) write(() -> flats.forEach((key, flat) -> remember(key, FlatRecord.of(flat))));
         String i = LocalDateTime.now().toString();
         collectionInitialization = LocalDateTime.parse(i);
     }
@@ -56,12 +95,12 @@ public class CollectionManager {
 
     private void loadCollection() {
         try {
-            hashtable = databaseCollectionManager.getCollection();
+            Map<Integer, Flat> flats = databaseCollectionManager.getCollection();
+            write(() -> flats.forEach((key, flat) -> remember(key, FlatRecord.of(flat))));
             var msg = "Коллекция загружена";
             UserConsole.printCommandText(msg);
             App.logger.info(msg);
         } catch (DatabaseHandlingException ex) {
-            hashtable = new Hashtable<>();
             var msg = "Коллекция не может быть загружена";
             UserConsole.printCommandText(msg);
             App.logger.info(msg);
@@ -69,12 +108,177 @@ public class CollectionManager {
     }
 
     /**
-     * Метод возвращает коллекцию целиком
+     * Метод возвращает коллекцию целиком в формате обмена, например для записи в файл
+     *
+     * @return упорядоченная по ключу копия коллекции
+     */
+    public NavigableMap<Integer, Flat> getCollection() {
+        NavigableMap<Integer, Flat> flats = new TreeMap<>();
+        snapshot.getEntriesAfter(Integer.MIN_VALUE).forEach(entry -> flats.put(entry.getKey(), entry.getValue().toFlat()));
+        return flats;
+    }
+
+    /**
+     * Метод возвращает элемент по ключу
+     *
+     * @param key ключ
+     * @return элемент или null, если элемента с таким ключом нет
+     */
+    public FlatRecord getFlat(int key) {
+        return snapshot.getFlat(key);
+    }
+
+    /**
+     * Метод возвращает все элементы коллекции в порядке возрастания ключа
+     *
+     * @return элементы опубликованной версии только для чтения
+     */
+    public Collection<FlatRecord> getFlats() {
+        return snapshot.getFlats();
+    }
+
+    /**
+     * Метод возвращает ключи элементов с заданным видом, не просматривая остальные элементы
+     *
+     * @param view вид, null - элементы без вида
+     * @return упорядоченное представление ключей только для чтения
+     */
+    public NavigableSet<Integer> getKeysByView(View view) {
+        return Collections.unmodifiableNavigableSet(viewBucket(view));
+    }
+
+    /**
+     * Метод возвращает ключи элементов пользователя, не просматривая чужие элементы
+     *
+     * @param username имя владельца
+     * @return упорядоченное представление ключей только для чтения, пустое, если элементов нет
+     */
+    public NavigableSet<Integer> getKeysByOwner(String username) {
+        NavigableSet<Integer> keys = username == null ? null : keysByOwner.get(username);
+        return keys == null ? Collections.emptyNavigableSet() : Collections.unmodifiableNavigableSet(keys);
+    }
+
+    /**
+     * Метод возвращает ключи элементов пользователя с заданным видом.
+     * Просматривается меньший из двух индексов
+     *
+     * @param username имя владельца
+     * @param view     вид, null - элементы без вида
+     * @return ключи в порядке возрастания
+     */
+    public List<Integer> getKeysByOwnerAndView(String username, View view) {
+        NavigableSet<Integer> owned = getKeysByOwner(username);
+        NavigableSet<Integer> withView = viewBucket(view);
+        NavigableSet<Integer> smaller = owned.size() <= withView.size() ? owned : withView;
+        NavigableSet<Integer> larger = smaller == owned ? withView : owned;
+        List<Integer> keys = new ArrayList<>();
+        for (Integer key : smaller) {
+            if (larger.contains(key)) keys.add(key);
+        }
+        return keys;
+    }
+
+    /**
+     * Метод возвращает элементы, дом которых меньше заданного по году, числу этажей, числу квартир на этаже
+     * и числу лифтов. Просматриваются только ветви индекса домов, где такие дома могут быть
+     *
+     * @param bound дом, с которым сравниваются дома элементов
+     * @return найденные элементы одной версии коллекции в произвольном порядке
+     */
+    public List<FlatRecord> getFlatsWithHouseLessThan(House bound) {
+        HouseRecord limit = HouseRecord.of(bound);
+        return readIndex(version -> {
+            List<FlatRecord> flats = new ArrayList<>();
+            for (Integer key : houseIndex.findLessThan(limit)) {
+                flats.add(version.getFlat(key));
+            }
+            return flats;
+        }, version -> {
+            List<FlatRecord> flats = new ArrayList<>();
+            for (FlatRecord flat : version.getFlats()) {
+                if (HouseDominanceIndex.isLessThan(flat.house(), limit)) flats.add(flat);
+            }
+            return flats;
+        });
+    }
+
+    /**
+     * Метод возвращает опубликованную версию коллекции без блокировок и копирования
+     *
+     * @return последняя завершенная версия коллекции
+     */
+    public CollectionSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // Оптимистичное чтение изменяемого индекса (seqlock): писатель делает счетчик изменений нечетным до
+    // изменения индексов и четным после публикации версии. Если счетчик до и после запроса один и тот же
+    // и четный, индекс во время запроса соответствовал прочитанной версии. Иначе запрос повторяется,
+    // а после INDEX_READ_ATTEMPTS неудач выполняется просмотром версии - без ожидания писателей
+    private <T> T readIndex(Function<CollectionSnapshot, T> indexed, Function<CollectionSnapshot, T> scan) {
+        for (int attempt = 0; attempt < INDEX_READ_ATTEMPTS; attempt++) {
+            long before = writes;
+            if ((before & 1) == 0) {
+                CollectionSnapshot version = snapshot;
+                T result = indexed.apply(version);
+                if (writes == before) return result;
+            }
+            Thread.onSpinWait();
+        }
+        return scan.apply(snapshot);
+    }
+
+    /**
+     * Метод возвращает элементы, координаты которых лежат в прямоугольнике (границы включаются).
+     * Просматриваются только ячейки индекса координат, пересекающие прямоугольник
      *
-     * @return коллекция
+     * @return найденные элементы в порядке возрастания ключа
      */
-    public Hashtable<Integer, Flat> getCollection() {
-        return hashtable;
+    public List<FlatRecord> getFlatsInBox(int minX, int minY, int maxX, int maxY) {
+        return readIndex(version -> {
+            List<Integer> keys = coordinatesIndex.findInBox(minX, minY, maxX, maxY);
+            Collections.sort(keys);
+            List<FlatRecord> flats = new ArrayList<>(keys.size());
+            for (Integer key : keys) {
+                flats.add(version.getFlat(key));
+            }
+            return flats;
+        }, version -> {
+            List<FlatRecord> flats = new ArrayList<>();
+            for (FlatRecord flat : version.getFlats()) {
+                CoordinatesRecord coordinates = flat.coordinates();
+                if (coordinates == null || coordinates.y() == null) continue;
+                if (coordinates.x() >= minX && coordinates.x() <= maxX && coordinates.y() >= minY && coordinates.y() <= maxY) {
+                    flats.add(flat);
+                }
+            }
+            return flats;
+        });
+    }
+
+    /**
+     * Метод возвращает не больше count элементов, ближайших к точке, с расстояниями до нее
+     *
+     * @param count количество элементов
+     * @return элементы и расстояния в порядке возрастания расстояния
+     */
+    public List<Map.Entry<FlatRecord, Double>> getNearestFlats(int x, int y, int count) {
+        return readIndex(version -> {
+            List<Map.Entry<FlatRecord, Double>> nearest = new ArrayList<>();
+            for (CoordinatesGridIndex.Neighbour neighbour : coordinatesIndex.findNearest(x, y, count)) {
+                nearest.add(Map.entry(version.getFlat(neighbour.key()), neighbour.distance()));
+            }
+            return nearest;
+        }, version -> {
+            List<Map.Entry<FlatRecord, Double>> nearest = new ArrayList<>();
+            for (FlatRecord flat : version.getFlats()) {
+                CoordinatesRecord coordinates = flat.coordinates();
+                if (coordinates == null || coordinates.y() == null) continue;
+                nearest.add(Map.entry(flat, Math.hypot((double) coordinates.x() - x, (double) coordinates.y() - y)));
+            }
+            nearest.sort(Map.Entry.comparingByValue());
+            return count <= 0 ? List.of() : nearest.subList(0, Math.min(count, nearest.size()));
+        });
     }
 
     /**
@@ -82,12 +286,14 @@ public class CollectionManager {
      */
     public String info() {
         var builder = new StringBuilder();
-        builder.append("Коллекция: ").append(hashtable.getClass().getSimpleName()).append("\n");
+        CollectionSnapshot current = snapshot;
+        builder.append("Коллекция: ").append(PersistentTreeMap.class.getSimpleName()).append("\n");
         builder.append("Тип элементов коллекции: ").append(Flat.class.getSimpleName()).append("\n");
         String pattern = "yyyy-MM-dd HH:mm:ss.SSS";
         DateTimeFormatter europeanDateFormat = DateTimeFormatter.ofPattern(pattern);
         builder.append("Время инициализации коллекции: ").append(collectionInitialization.format(europeanDateFormat)).append("\n");
-        builder.append("Количество элементов в коллекции: ").append(hashtable.size()).append("\n");
+        builder.append("Количество элементов в коллекции: ").append(current.size()).append("\n");
+        builder.append(current.getStatistics().describe());
         return builder.toString();
     }
 
@@ -98,92 +304,88 @@ public class CollectionManager {
      * @param flat элемент коллекции, который нужно добавить
      */
     public String insert(Integer key, Flat flat) { //todo User
-        if (!hashtable.contains(key)) {
-            hashtable.put(key, flat);
-            allId.add(flat.getId());
+        return write(() -> {
+            if (draft.getFlat(key) != null) return "Элемент с данным ключом уже существует";
+            remember(key, FlatRecord.of(flat));
             return "Элемент добавлен";
-        } else return "Элемент с данным ключом уже существует";
+        });
     }
 
     /**
-     * Метод возвращает ключ элемента по его id
+     * Метод, добавляющий сразу несколько элементов, ключ каждого - его id.
+     * Читатели видят либо ни одного, либо все добавленные элементы
      *
-     * @param id id
-     * @return ключ
+     * @param flats добавляемые элементы
      */
-    public int getKey(int id) {
-        return hashtable.entrySet().stream()
-                .filter(entry -> entry.getValue().getId() == id)
-                .findAny()
-                .map(Map.Entry::getKey)
-                .orElse(-1);
+    public void insertAll(Collection<Flat> flats) {
+        write(() -> {
+            for (Flat flat : flats) {
+                FlatRecord record = FlatRecord.of(flat);
+                forget(record.id());
+                remember(record.id(), record);
+            }
+        });
     }
 
     /**
-     * Метод, удаляющий выбранный по идентификатору элемент коллекции
+     * Метод возвращает ключ элемента по его id за O(1)
      *
-     * @param key идентификатор элемента коллекции (ключ)
+     * @param id id
+     * @return ключ или -1, если элемента с таким id нет
      */
-    public void removeKey(Integer key) { //todo User
-        Flat flat = hashtable.remove(key);
-        allId.remove(flat.getId());
+    public int getKey(int id) {
+        Integer key = keysById.get(id);
+        return key == null ? -1 : key;
     }
 
     /**
-     * Метод, удаляющий все элементы коллекции, значение ключа которых меньше указанного
+     * Метод, изменяющий элемент коллекции. Элемент не меняется на месте, а заменяется новым объектом,
+     * поэтому читатели видят либо прежнюю, либо новую версию целиком. Индексы обновляются вместе с элементом
      *
-     * @param key значение ключа, меньше которого следует удалять элементы
+     * @param key     ключ элемента
+     * @param changes новые значения полей; не заданные поля (null или -1) не меняются
      */
-    public String removeLowerKey(Integer key) { //todo User
-        ArrayList<Integer> keys = new ArrayList<>();
-        long count = hashtable.entrySet().stream()
-                .filter(entry -> entry.getKey() < key)
-                .peek(entry -> keys.add(entry.getKey()))
-                .count();
-        keys.forEach(hashtable::remove);
-        return "Было удалено элементов: " + count;
+    public void update(int key, Flat changes) {
+        write(() -> {
+            FlatRecord flat = draft.getFlat(key);
+            if (flat == null) return;
+            FlatRecord updated = flat;
+            if (changes.getName() != null) updated = updated.withName(changes.getName());
+            if (changes.getCoordinates() != null) updated = updated.withCoordinates(CoordinatesRecord.of(changes.getCoordinates()));
+            if (changes.getArea() != -1) updated = updated.withArea(changes.getArea());
+            if (changes.getNumberOfRooms() != -1) updated = updated.withNumberOfRooms(changes.getNumberOfRooms());
+            if (changes.getNumberOfBathrooms() != -1) updated = updated.withNumberOfBathrooms(changes.getNumberOfBathrooms());
+            if (changes.getFurnish() != null) updated = updated.withFurnish(changes.getFurnish());
+            if (changes.getView() != null) updated = updated.withView(changes.getView());
+            if (changes.getHouse() != null) updated = updated.withHouse(HouseRecord.of(changes.getHouse()));
+            forget(key);
+            remember(key, updated);
+        });
     }
 
     /**
-     * Метод, удаляющий все элементы коллекции, значение ключа которых больше указанного
+     * Метод, удаляющий выбранный по идентификатору элемент коллекции
      *
-     * @param key значение ключа, больше которого следует удалять элементы
-     */
-    public String removeGreaterKey(Integer key) { //todo User
-        ArrayList<Integer> keys = new ArrayList<>();
-        long count = hashtable.entrySet().stream()
-                .filter(entry -> entry.getKey() > key)
-                .peek(entry -> keys.add(entry.getKey()))
-                .count();
-        keys.forEach(hashtable::remove);
-        return "Было удалено элементов: " + count;
-    }
-
-    /**
-     * Метод, удаляющий все элементы коллекции
+     * @param key идентификатор элемента коллекции (ключ)
      */
-    public void clear() { //todo User
-        hashtable.clear();
-        allId.clear();
+    public void removeKey(Integer key) { //todo User
+        write(() -> forget(key));
     }
 
     /**
-     * Метод, удаляющий все элементы коллекции, вид которого соответствует заданному
+     * Метод, удаляющий элементы с заданными id, например уже удаленные из БД одним запросом.
+     * Ключи элементов находятся по индексу id, элементы, которых нет в коллекции, пропускаются.
+     * Читатели видят либо все, либо ни одного из удаляемых элементов
      *
-     * @param view выбранный вид элемента коллекции
+     * @param ids id удаляемых элементов
      */
-    public String removeAllByView(View view) { //todo User
-        ArrayList<Integer> keys = new ArrayList<>();
-        long count = hashtable.entrySet().stream()
-                .filter(entry -> {
-                    if (entry.getValue().getView() == null && view == null) return true;
-                    if (entry.getValue().getView() == null) return false;
-                    return entry.getValue().getView().equals(view);
-                })
-                .peek(entry -> keys.add(entry.getKey()))
-                .count();
-        keys.forEach(hashtable::remove);
-        return "Было удалено элементов: " + count;
+    public void removeIds(Collection<Integer> ids) {
+        write(() -> {
+            for (Integer id : ids) {
+                Integer key = keysById.get(id);
+                if (key != null) forget(key);
+            }
+        });
     }
 
     /**
@@ -193,7 +395,64 @@ public class CollectionManager {
      * @return true - в коллекции существует элемент с выбранным ключом, false - такого элемента не существует
      */
     public boolean containsKey(int key) {
-        return hashtable.containsKey(key);
+        return snapshot.getFlat(key) != null;
+    }
+
+    private void write(Runnable change) {
+        write(() -> {
+            change.run();
+            return null;
+        });
+    }
+
+    // выполняет изменение под блокировкой записи и публикует построенную им версию целиком
+    private <T> T write(Supplier<T> change) {
+        synchronized (writeLock) {
+            writes++;
+            draft = snapshot;
+            try {
+                return change.get();
+            } finally {
+                if (draft != snapshot) snapshot = draft.nextVersion();
+                draft = null;
+                writes++;
+            }
+        }
+    }
+
+    // заносит элемент в версию и индексы коллекции; вызывается внутри write
+    private void remember(Integer key, FlatRecord flat) {
+        allId.add(flat.id());
+        keysById.put(flat.id(), key);
+        viewBucket(flat.view()).add(key);
+        houseIndex.add(key, flat.house());
+        coordinatesIndex.add(key, flat.coordinates());
+        if (flat.owner() != null) {
+            keysByOwner.computeIfAbsent(flat.owner(), owner -> new ConcurrentSkipListSet<>()).add(key);
+        }
+        draft = draft.with(key, flat);
+    }
+
+    // убирает элемент из версии и индексов коллекции; вызывается внутри write
+    private void forget(Integer key) {
+        FlatRecord flat = draft.getFlat(key);
+        if (flat == null) return;
+        allId.remove(flat.id());
+        keysById.remove(flat.id(), key);
+        viewBucket(flat.view()).remove(key);
+        houseIndex.remove(key);
+        coordinatesIndex.remove(key);
+        if (flat.owner() != null) {
+            keysByOwner.computeIfPresent(flat.owner(), (owner, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
+        draft = draft.without(key);
+    }
+
+    private NavigableSet<Integer> viewBucket(View view) {
+        return view == null ? keysWithoutView : keysByView.get(view);
     }
 
     /**
@@ -0,0 +1,152 @@
+package server.utility;
+
+import java.util.AbstractCollection;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Неизменяемая версия коллекции: элементы в порядке ключа, элементы в порядке дома и сводные показатели
+ * на один и тот же момент.
+ * <p>
+ * {@link CollectionManager} под своей блокировкой записи получает из текущей версии следующую методами
+ * {@link #with(int, FlatRecord)} и {@link #without(int)} и публикует ее целиком, когда изменение закончено.
+ * Таблицы версии - {@link PersistentTreeMap}, поэтому новая версия копирует только O(log n) узлов,
+ * а остальное разделяет с предыдущей. Читатели берут опубликованную версию без блокировок и не мешают
+ * писателям. Элементы - неизменяемые {@link FlatRecord}, поэтому версия хранит ссылки на них без копирования.
+ */
+public final class CollectionSnapshot {
+    /**
+     * Версия пустой коллекции
+     */
+    public static final CollectionSnapshot EMPTY = new CollectionSnapshot(0, PersistentTreeMap.empty(),
+            PersistentTreeMap.empty(new SortByHouse()), CollectionStatistics.EMPTY);
+
+    private final long version;
+    private final PersistentTreeMap<Integer, FlatRecord> flats;
+    // элемент - его ключ
+    private final PersistentTreeMap<FlatRecord, Integer> flatsByHouse;
+    private final CollectionStatistics statistics;
+
+    private CollectionSnapshot(long version, PersistentTreeMap<Integer, FlatRecord> flats,
+                               PersistentTreeMap<FlatRecord, Integer> flatsByHouse, CollectionStatistics statistics) {
+        this.version = version;
+        this.flats = flats;
+        this.flatsByHouse = flatsByHouse;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return номер версии коллекции
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return количество элементов
+     */
+    public int size() {
+        return flats.size();
+    }
+
+    /**
+     * Метод возвращает элемент по ключу
+     *
+     * @param key ключ
+     * @return элемент или null, если элемента с таким ключом нет
+     */
+    public FlatRecord getFlat(int key) {
+        return flats.get(key);
+    }
+
+    /**
+     * @return элементы в порядке возрастания ключа только для чтения
+     */
+    public Collection<FlatRecord> getFlats() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<FlatRecord> iterator() {
+                Iterator<Map.Entry<Integer, FlatRecord>> entries = flats.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public FlatRecord next() {
+                        return entries.next().getValue();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return flats.size();
+            }
+        };
+    }
+
+    /**
+     * Метод возвращает элементы с ключами больше заданного в порядке возрастания ключа, без копирования.
+     * Начало выборки находится за O(log n), поэтому страница стоит O(log n + размер страницы)
+     *
+     * @param key ключ, после которого начинается выборка
+     * @return пары "ключ - элемент" только для чтения
+     */
+    public Iterable<Map.Entry<Integer, FlatRecord>> getEntriesAfter(int key) {
+        return flats.entriesAfter(key);
+    }
+
+    /**
+     * @return элементы в порядке возрастания дома (см. {@link SortByHouse}) только для чтения
+     */
+    public Iterable<FlatRecord> getFlatsByHouse() {
+        return () -> {
+            Iterator<Map.Entry<FlatRecord, Integer>> entries = flatsByHouse.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public FlatRecord next() {
+                    return entries.next().getKey();
+                }
+            };
+        };
+    }
+
+    /**
+     * @return сводные показатели коллекции
+     */
+    public CollectionStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return версия, в которой по ключу хранится заданный элемент; прежний элемент с этим ключом
+     * должен быть уже убран методом {@link #without(int)}
+     */
+    CollectionSnapshot with(int key, FlatRecord flat) {
+        return new CollectionSnapshot(version, flats.put(key, flat), flatsByHouse.put(flat, key), statistics.add(flat));
+    }
+
+    /**
+     * @return версия без элемента с заданным ключом; эта же версия, если такого элемента нет
+     */
+    CollectionSnapshot without(int key) {
+        FlatRecord flat = flats.get(key);
+        if (flat == null) return this;
+        return new CollectionSnapshot(version, flats.remove(key), flatsByHouse.remove(flat), statistics.remove(flat));
+    }
+
+    /**
+     * @return эта же версия под следующим номером, для публикации
+     */
+    CollectionSnapshot nextVersion() {
+        return new CollectionSnapshot(version + 1, flats, flatsByHouse, statistics);
+    }
+}
@@ -0,0 +1,131 @@
+package server.utility;
+
+import common.data.Furnish;
+import common.data.View;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Неизменяемые сводные показатели коллекции. Показатели не вычисляются просмотром коллекции:
+ * {@link CollectionManager} при каждом добавлении и удалении элемента получает новую версию через
+ * {@link #add(FlatRecord)} и {@link #remove(FlatRecord)} и публикует ее, поэтому команда info читает
+ * согласованные показатели без блокировок.
+ * <p>
+ * Счетчики по мебели, виду и количеству комнат - небольшие массивы, их копирование стоит O(1).
+ * Минимум и максимум площади берутся из упорядоченного счетчика площадей, а число элементов владельцев -
+ * из таблицы по именам; обе таблицы - {@link PersistentTreeMap}, поэтому обновление стоит O(log m),
+ * где m - число различных площадей или владельцев.
+ */
+public final class CollectionStatistics {
+    /**
+     * Наибольшее количество комнат в квартире
+     */
+    public static final int MAX_ROOMS = 14;
+
+    /**
+     * Показатели пустой коллекции
+     */
+    public static final CollectionStatistics EMPTY = new CollectionStatistics(0, 0, PersistentTreeMap.empty(),
+            new long[Furnish.values().length], new long[View.values().length + 1], new long[MAX_ROOMS + 1],
+            PersistentTreeMap.empty());
+
+    private final long count;
+    private final long areaSum;
+    private final PersistentTreeMap<Integer, Long> areaCounts;
+    private final long[] furnishCounts;
+    // индекс - порядковый номер вида; последняя ячейка - элементы без вида
+    private final long[] viewCounts;
+    // индекс - количество комнат; нулевая ячейка - значения вне 1..MAX_ROOMS
+    private final long[] roomCounts;
+    private final PersistentTreeMap<String, Long> ownerCounts;
+
+    private CollectionStatistics(long count, long areaSum, PersistentTreeMap<Integer, Long> areaCounts, long[] furnishCounts,
+                                 long[] viewCounts, long[] roomCounts, PersistentTreeMap<String, Long> ownerCounts) {
+        this.count = count;
+        this.areaSum = areaSum;
+        this.areaCounts = areaCounts;
+        this.furnishCounts = furnishCounts;
+        this.viewCounts = viewCounts;
+        this.roomCounts = roomCounts;
+        this.ownerCounts = ownerCounts;
+    }
+
+    /**
+     * @return показатели с учетом добавленного элемента
+     */
+    public CollectionStatistics add(FlatRecord flat) {
+        return change(flat, 1);
+    }
+
+    /**
+     * @return показатели без учета удаленного элемента
+     */
+    public CollectionStatistics remove(FlatRecord flat) {
+        return change(flat, -1);
+    }
+
+    /**
+     * @return количество учтенных элементов
+     */
+    public long size() {
+        return count;
+    }
+
+    /**
+     * @return показатели в виде текста для команды info
+     */
+    public String describe() {
+        var builder = new StringBuilder();
+        if (count > 0) {
+            builder.append("Площадь: минимальная ").append(areaCounts.firstEntry().getKey())
+                    .append(", максимальная ").append(areaCounts.lastEntry().getKey())
+                    .append(", средняя ").append(String.format("%.2f", (double) areaSum / count)).append("\n");
+        }
+        builder.append("По мебели:");
+        for (Furnish furnish : Furnish.values()) {
+            builder.append(" ").append(furnish).append(" - ").append(furnishCounts[furnish.ordinal()]).append(";");
+        }
+        builder.append("\nПо виду:");
+        for (View view : View.values()) {
+            builder.append(" ").append(view).append(" - ").append(viewCounts[view.ordinal()]).append(";");
+        }
+        builder.append(" без вида - ").append(viewCounts[View.values().length]).append(";\n");
+        builder.append("По количеству комнат:");
+        for (int rooms = 1; rooms <= MAX_ROOMS; rooms++) {
+            if (roomCounts[rooms] != 0) builder.append(" ").append(rooms).append(" - ").append(roomCounts[rooms]).append(";");
+        }
+        if (roomCounts[0] != 0) builder.append(" другое - ").append(roomCounts[0]).append(";");
+        builder.append("\nПо владельцам:");
+        for (Map.Entry<String, Long> owner : ownerCounts) {
+            builder.append(" ").append(owner.getKey()).append(" - ").append(owner.getValue()).append(";");
+        }
+        builder.append("\n");
+        return builder.toString();
+    }
+
+    private CollectionStatistics change(FlatRecord flat, int delta) {
+        long[] furnish = furnishCounts;
+        if (flat.furnish() != null) {
+            furnish = Arrays.copyOf(furnishCounts, furnishCounts.length);
+            furnish[flat.furnish().ordinal()] += delta;
+        }
+        long[] views = Arrays.copyOf(viewCounts, viewCounts.length);
+        views[flat.view() == null ? View.values().length : flat.view().ordinal()] += delta;
+        long[] rooms = Arrays.copyOf(roomCounts, roomCounts.length);
+        long numberOfRooms = flat.numberOfRooms();
+        rooms[numberOfRooms >= 1 && numberOfRooms <= MAX_ROOMS ? (int) numberOfRooms : 0] += delta;
+        PersistentTreeMap<String, Long> owners = ownerCounts;
+        if (flat.owner() != null) {
+            owners = count(ownerCounts, flat.owner(), delta);
+        }
+        return new CollectionStatistics(count + delta, areaSum + (long) flat.area() * delta,
+                count(areaCounts, flat.area(), delta), furnish, views, rooms, owners);
+    }
+
+    private static <K> PersistentTreeMap<K, Long> count(PersistentTreeMap<K, Long> counts, K key, int delta) {
+        Long previous = counts.get(key);
+        long current = (previous == null ? 0 : previous) + delta;
+        return current <= 0 ? counts.remove(key) : counts.put(key, current);
+    }
+}
@@ -0,0 +1,275 @@
+package server.utility;
+
+import server.App;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+
+/**
+ * Пул соединений с базой данных.
+ * Держит не меньше min открытых соединений и выдает не больше max одновременно; если свободных нет,
+ * запрашивающий поток ждет не дольше заданного времени. Соединение, простоявшее без дела, перед выдачей
+ * проверяется, а соединение, которое держат слишком долго, считается утечкой и попадает в журнал вместе
+ * с местом, где его взяли.
+ * <p>
+ * У каждого соединения свой {@link StatementCache}.
+ * <p>
+ * Настройки задаются свойствами {@code -Ddb.pool.min}, {@code -Ddb.pool.max}, {@code -Ddb.pool.timeout} (мс)
+ * и {@code -Ddb.pool.leakThreshold} (мс); размер кэша запросов - {@code -Ddb.statementCacheSize},
+ * число выполнений запроса, после которого драйвер PostgreSQL готовит его на сервере, - {@code -Ddb.prepareThreshold}.
+ * Пакеты однотипных INSERT драйвер отправляет одним многострочным запросом ({@code reWriteBatchedInserts}).
+ */
+public class ConnectionPool {
+    private static final long VALIDATION_INTERVAL_MILLIS = 30_000;
+    private static final long IDLE_TIMEOUT_MILLIS = 60_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long MAINTENANCE_PERIOD_SECONDS = 10;
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+    private final Integer prepareThreshold;
+
+    private final BlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private final Semaphore permits;
+    private final ScheduledExecutorService maintenance;
+
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private long reportedBorrowCount;
+
+    /**
+     * Соединение пула и сведения о его использовании
+     */
+    public static class PooledConnection {
+        private final Connection connection;
+        private final StatementCache statementCache;
+        private volatile long lastUsedMillis = System.currentTimeMillis();
+        private volatile long borrowedAtMillis;
+        private volatile Throwable borrowStack;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection connection, StatementCache statementCache) {
+            this.connection = connection;
+            this.statementCache = statementCache;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        public StatementCache getStatementCache() {
+            return statementCache;
+        }
+    }
+
+    /**
+     * @param statementCacheSize число подготовленных запросов, хранимых для каждого соединения (0 - без кэша)
+     * @param prepareThreshold   порог подготовки запросов на сервере PostgreSQL, null - значение драйвера по умолчанию
+     */
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+                          long borrowTimeoutMillis, long leakThresholdMillis,
+                          int statementCacheSize, Integer prepareThreshold) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Недопустимые размеры пула: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.prepareThreshold = prepareThreshold;
+        this.permits = new Semaphore(maxSize, true);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleAtFixedRate(this::maintain, MAINTENANCE_PERIOD_SECONDS, MAINTENANCE_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Создает пул по системным свойствам
+     */
+    public static ConnectionPool fromSystemProperties(String url, String user, String password) {
+        int max = Integer.getInteger("db.pool.max", 10);
+        int min = Math.min(Integer.getInteger("db.pool.min", 2), max);
+        return new ConnectionPool(url, user, password, min, max,
+                Long.getLong("db.pool.timeout", 5_000), Long.getLong("db.pool.leakThreshold", 30_000),
+                Integer.getInteger("db.statementCacheSize", 64), Integer.getInteger("db.prepareThreshold"));
+    }
+
+    /**
+     * Открывает минимальное число соединений
+     *
+     * @throws SQLException не удалось подключиться к базе данных
+     */
+    public void start() throws SQLException {
+        for (int i = idle.size(); i < minSize; i++) {
+            idle.addLast(open());
+        }
+    }
+
+    /**
+     * Выдает соединение, при необходимости дожидаясь освобождения
+     *
+     * @return соединение, которое нужно вернуть через {@link #release(PooledConnection)}
+     * @throws SQLException свободное соединение не появилось за отведенное время или не удалось открыть новое
+     */
+    public PooledConnection borrow() throws SQLException {
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLException("Нет свободного соединения с базой данных за " + borrowTimeoutMillis + " мс");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException(e);
+        }
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        borrowCount.increment();
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null && !isUsable(pooled)) {
+                discard(pooled);
+            }
+            if (pooled == null) pooled = open();
+            pooled.borrowedAtMillis = System.currentTimeMillis();
+            pooled.borrowStack = new Throwable("Соединение выдано здесь");
+            pooled.leakReported = false;
+            active.add(pooled);
+            return pooled;
+        } catch (SQLException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает соединение в пул. Незавершенная транзакция откатывается
+     *
+     * @param pooled соединение, выданное {@link #borrow()}
+     */
+    public void release(PooledConnection pooled) {
+        if (!active.remove(pooled)) return;
+        try {
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            pooled.lastUsedMillis = System.currentTimeMillis();
+            pooled.borrowStack = null;
+            idle.addFirst(pooled);
+        } catch (SQLException e) {
+            App.logger.warning("Соединение с базой данных не удалось вернуть в пул, оно будет закрыто");
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * @return сводка состояния пула: активные и свободные соединения, время ожидания, утечки
+     */
+    public String getStats() {
+        long borrows = borrowCount.sum();
+        double averageWaitMillis = borrows == 0 ? 0 : waitNanos.sum() / 1e6 / borrows;
+        return String.format("Пул соединений: активных %d, свободных %d (min %d, max %d); выдач %d, " +
+                        "среднее ожидание %.3f мс, максимальное ожидание %.3f мс, отказов по таймауту %d, утечек %d; " +
+                        "кэш запросов: попаданий %d, промахов %d",
+                active.size(), idle.size(), minSize, maxSize, borrows, averageWaitMillis,
+                maxWaitNanos.get() / 1e6, timeoutCount.sum(), leakCount.sum(),
+                statementCacheHits.sum(), statementCacheMisses.sum());
+    }
+
+    /**
+     * Закрывает все соединения пула
+     */
+    public void close() {
+        maintenance.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+        active.forEach(this::discard);
+        active.clear();
+    }
+
+    private PooledConnection open() throws SQLException {
+        Properties properties = new Properties();
+        if (user != null) properties.setProperty("user", user);
+        if (password != null) properties.setProperty("password", password);
+        if (prepareThreshold != null) properties.setProperty("prepareThreshold", prepareThreshold.toString());
+        properties.setProperty("reWriteBatchedInserts", "true");
+        Connection connection = DriverManager.getConnection(url, properties);
+        return new PooledConnection(connection,
+                new StatementCache(connection, statementCacheSize, statementCacheHits, statementCacheMisses));
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.currentTimeMillis() - pooled.lastUsedMillis < VALIDATION_INTERVAL_MILLIS) return true;
+        try {
+            return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        try {
+            pooled.connection.close();
+        } catch (SQLException ignore) {}
+    }
+
+    // поиск утечек, закрытие лишних простаивающих соединений, журнал метрик
+    private void maintain() {
+        long now = System.currentTimeMillis();
+        for (PooledConnection pooled : active) {
+            Throwable borrowStack = pooled.borrowStack;
+            if (!pooled.leakReported && borrowStack != null && now - pooled.borrowedAtMillis > leakThresholdMillis) {
+                pooled.leakReported = true;
+                leakCount.increment();
+                App.logger.log(Level.WARNING, "Соединение с базой данных не возвращено в пул дольше "
+                        + leakThresholdMillis + " мс", borrowStack);
+            }
+        }
+        PooledConnection oldest;
+        while (idle.size() > minSize && (oldest = idle.pollLast()) != null) {
+            if (now - oldest.lastUsedMillis < IDLE_TIMEOUT_MILLIS) {
+                idle.addLast(oldest);
+                break;
+            }
+            discard(oldest);
+        }
+        long borrows = borrowCount.sum();
+        if (borrows != reportedBorrowCount) {
+            reportedBorrowCount = borrows;
+            App.logger.info(getStats());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package server.utility;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Пространственный индекс координат элементов: равномерная сетка из квадратных ячеек со стороной
+ * {@link #CELL_SIZE}. Хранятся только непустые ячейки, поэтому координаты не ограничены диапазоном.
+ * <p>
+ * Запрос прямоугольника просматривает только пересекающие его ячейки (или все непустые ячейки, если их
+ * меньше). Поиск ближайших обходит ячейки кольцами вокруг заданной точки и останавливается, когда
+ * следующее кольцо заведомо дальше k-го найденного элемента.
+ * <p>
+ * Элементы без координат не индексируются. Методы синхронизированы на самом индексе.
+ */
+public class CoordinatesGridIndex {
+    /**
+     * Сторона ячейки сетки
+     */
+    public static final int CELL_SIZE = 32;
+
+    private record Point(int key, int x, int y) {}
+
+    /**
+     * Элемент, найденный поиском ближайших
+     *
+     * @param key      ключ элемента
+     * @param distance расстояние до заданной точки
+     */
+    public record Neighbour(int key, double distance) {}
+
+    private final Map<Long, List<Point>> cells = new HashMap<>();
+    private final Map<Integer, Point> points = new HashMap<>();
+    // границы занятых ячеек; при удалении не сужаются, это только ограничивает обход колец
+    private int minCellX = Integer.MAX_VALUE;
+    private int maxCellX = Integer.MIN_VALUE;
+    private int minCellY = Integer.MAX_VALUE;
+    private int maxCellY = Integer.MIN_VALUE;
+
+    /**
+     * Добавляет координаты элемента. Если ключ уже есть в индексе, прежние координаты заменяются
+     *
+     * @param key         ключ элемента
+     * @param coordinates координаты, null - элемент без координат
+     */
+    public synchronized void add(int key, CoordinatesRecord coordinates) {
+        remove(key);
+        if (coordinates == null || coordinates.y() == null) return;
+        Point point = new Point(key, coordinates.x(), coordinates.y());
+        points.put(key, point);
+        int cellX = cellOf(point.x());
+        int cellY = cellOf(point.y());
+        cells.computeIfAbsent(cellKey(cellX, cellY), cell -> new ArrayList<>()).add(point);
+        minCellX = Math.min(minCellX, cellX);
+        maxCellX = Math.max(maxCellX, cellX);
+        minCellY = Math.min(minCellY, cellY);
+        maxCellY = Math.max(maxCellY, cellY);
+    }
+
+    /**
+     * Убирает координаты элемента из индекса
+     *
+     * @param key ключ элемента
+     */
+    public synchronized void remove(int key) {
+        Point point = points.remove(key);
+        if (point == null) return;
+        long cell = cellKey(cellOf(point.x()), cellOf(point.y()));
+        List<Point> cellPoints = cells.get(cell);
+        cellPoints.remove(point);
+        if (cellPoints.isEmpty()) cells.remove(cell);
+    }
+
+    /**
+     * Находит элементы, координаты которых лежат в прямоугольнике (границы включаются)
+     *
+     * @return ключи найденных элементов в произвольном порядке
+     */
+    public synchronized List<Integer> findInBox(int minX, int minY, int maxX, int maxY) {
+        List<Integer> keys = new ArrayList<>();
+        if (minX > maxX || minY > maxY || cells.isEmpty()) return keys;
+        int fromX = Math.max(cellOf(minX), minCellX);
+        int toX = Math.min(cellOf(maxX), maxCellX);
+        int fromY = Math.max(cellOf(minY), minCellY);
+        int toY = Math.min(cellOf(maxY), maxCellY);
+        if (fromX > toX || fromY > toY) return keys;
+        if ((long) (toX - fromX + 1) * (toY - fromY + 1) > cells.size()) {
+            cells.values().forEach(cellPoints -> collectInBox(cellPoints, minX, minY, maxX, maxY, keys));
+            return keys;
+        }
+        for (int cellX = fromX; cellX <= toX; cellX++) {
+            for (int cellY = fromY; cellY <= toY; cellY++) {
+                List<Point> cellPoints = cells.get(cellKey(cellX, cellY));
+                if (cellPoints != null) collectInBox(cellPoints, minX, minY, maxX, maxY, keys);
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Находит не больше count элементов, ближайших к точке
+     *
+     * @param count количество элементов
+     * @return найденные элементы в порядке возрастания расстояния
+     */
+    public synchronized List<Neighbour> findNearest(int x, int y, int count) {
+        List<Neighbour> nearest = new ArrayList<>();
+        if (count <= 0 || points.isEmpty()) return nearest;
+        // самый дальний из найденных - в голове очереди
+        PriorityQueue<Point> best = new PriorityQueue<>(
+                (first, second) -> Long.compare(squaredDistance(second, x, y), squaredDistance(first, x, y)));
+        int centerX = cellOf(x);
+        int centerY = cellOf(y);
+        int maxRing = Math.max(Math.max(centerX - minCellX, maxCellX - centerX), Math.max(centerY - minCellY, maxCellY - centerY));
+        for (int ring = 0; ring <= maxRing; ring++) {
+            if (best.size() == count && ringDistance(ring, x, y, centerX, centerY) > squaredDistance(best.peek(), x, y)) break;
+            for (int cellX = centerX - ring; cellX <= centerX + ring; cellX++) {
+                boolean edge = cellX == centerX - ring || cellX == centerX + ring;
+                for (int cellY = centerY - ring; cellY <= centerY + ring; cellY += edge ? 1 : 2 * ring) {
+                    List<Point> cellPoints = cells.get(cellKey(cellX, cellY));
+                    if (cellPoints == null) continue;
+                    for (Point point : cellPoints) {
+                        best.add(point);
+                        if (best.size() > count) best.poll();
+                    }
+                }
+            }
+        }
+        while (!best.isEmpty()) {
+            Point point = best.poll();
+            nearest.add(0, new Neighbour(point.key(), Math.sqrt(squaredDistance(point, x, y))));
+        }
+        return nearest;
+    }
+
+    private static void collectInBox(List<Point> cellPoints, int minX, int minY, int maxX, int maxY, List<Integer> keys) {
+        for (Point point : cellPoints) {
+            if (point.x() >= minX && point.x() <= maxX && point.y() >= minY && point.y() <= maxY) keys.add(point.key());
+        }
+    }
+
+    // квадрат расстояния от точки до ближайшей ячейки кольца: все, что за кольцом, не ближе
+    private static long ringDistance(int ring, int x, int y, int centerX, int centerY) {
+        long toEdge = Math.min(Math.min((long) x - (long) (centerX - ring + 1) * CELL_SIZE, (long) (centerX + ring) * CELL_SIZE - 1 - x),
+                Math.min((long) y - (long) (centerY - ring + 1) * CELL_SIZE, (long) (centerY + ring) * CELL_SIZE - 1 - y)) + 1;
+        if (toEdge <= 0) return 0;
+        return toEdge * toEdge;
+    }
+
+    private static long squaredDistance(Point point, int x, int y) {
+        long dx = (long) point.x() - x;
+        long dy = (long) point.y() - y;
+        return dx * dx + dy * dy;
+    }
+
+    private static int cellOf(int coordinate) {
+        return Math.floorDiv(coordinate, CELL_SIZE);
+    }
+
+    private static long cellKey(int cellX, int cellY) {
+        return (long) cellX << 32 | (cellY & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,42 @@
+package server.utility;
+
+import common.data.Coordinates;
+
+/**
+ * Неизменяемые координаты элемента в коллекции сервера
+ *
+ * @param x координата x
+ * @param y координата y
+ */
+public record CoordinatesRecord(int x, Integer y) implements Comparable<CoordinatesRecord> {
+
+    /**
+     * Создает неизменяемую копию координат, переданных клиентом или прочитанных из БД
+     *
+     * @param coordinates координаты или null
+     * @return копия или null
+     */
+    public static CoordinatesRecord of(Coordinates coordinates) {
+        return coordinates == null ? null : new CoordinatesRecord(coordinates.getX(), coordinates.getY());
+    }
+
+    /**
+     * @return изменяемые координаты для передачи клиенту или записи в файл
+     */
+    public Coordinates toCoordinates() {
+        return new Coordinates(x, y);
+    }
+
+    /**
+     * Сравнивает координаты по удаленности от (0, 0), как {@link Coordinates#compareTo(Coordinates)}
+     */
+    @Override
+    public int compareTo(CoordinatesRecord o) {
+        return Long.compare((long) x * x + (long) y * y, (long) o.x * o.x + (long) o.y * o.y);
+    }
+
+    @Override
+    public String toString() {
+        return toCoordinates().toString();
+    }
+}
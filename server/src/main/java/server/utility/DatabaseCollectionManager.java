@@ -4,15 +4,21 @@ import common.data.*;
 import common.exceptions.DatabaseHandlingException;
 import common.interaction.User;
 import common.utility.UserConsole;
+import org.postgresql.copy.CopyManager;
 import server.App;
 
+import java.io.IOException;
+import java.io.StringReader;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Hashtable;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static java.sql.JDBCType.NULL;
@@ -37,26 +43,15 @@ public class DatabaseCollectionManager {
             "?::view, ?, ?)";
     private final String DELETE_FLAT_BY_ID = "DELETE FROM " + DatabaseHandler.FLAT_TABLE +
             " WHERE " + DatabaseHandler.FLAT_TABLE_ID_COLUMN + " = ?";
-    private final String UPDATE_FLAT_NAME_BY_ID = "UPDATE " + DatabaseHandler.FLAT_TABLE + " SET " +
-            DatabaseHandler.FLAT_TABLE_NAME_COLUMN + " = ?" + " WHERE " +
-            DatabaseHandler.FLAT_TABLE_ID_COLUMN + " = ?";
+    // параметр null оставляет поле без изменений, поэтому любое частичное обновление - один и тот же запрос
     private final String UPDATE_FLAT_BY_ID = "UPDATE " + DatabaseHandler.FLAT_TABLE + " SET " +
-            DatabaseHandler.FLAT_TABLE_NAME_COLUMN + " = ?" + " WHERE " +
-            DatabaseHandler.FLAT_TABLE_ID_COLUMN + " = ?";
-    private final String UPDATE_FLAT_AREA_BY_ID = "UPDATE " + DatabaseHandler.FLAT_TABLE + " SET " +
-            DatabaseHandler.FLAT_TABLE_AREA_COLUMN + " = ?" + " WHERE " +
-            DatabaseHandler.FLAT_TABLE_ID_COLUMN + " = ?";
-    private final String UPDATE_FLAT_NUMBER_OF_ROOMS_BY_ID = "UPDATE " + DatabaseHandler.FLAT_TABLE + " SET " +
-            DatabaseHandler.FLAT_TABLE_NUMBER_OF_ROOMS_COLUMN + " = ?" + " WHERE " +
-            DatabaseHandler.FLAT_TABLE_ID_COLUMN + " = ?";
-    private final String UPDATE_FLAT_NUMBER_OF_BATHROOMS_BY_ID = "UPDATE " + DatabaseHandler.FLAT_TABLE + " SET " +
-            DatabaseHandler.FLAT_TABLE_NUMBER_OF_BATHROOMS_COLUMN + " = ?" + " WHERE " +
-            DatabaseHandler.FLAT_TABLE_ID_COLUMN + " = ?";
-    private final String UPDATE_FLAT_FURNISH_BY_ID = "UPDATE " + DatabaseHandler.FLAT_TABLE + " SET " +
-            DatabaseHandler.FLAT_TABLE_FURNISH_COLUMN + " = ?::furnish" + " WHERE " +
-            DatabaseHandler.FLAT_TABLE_ID_COLUMN + " = ?";
-    private final String UPDATE_FLAT_VIEW_BY_ID = "UPDATE " + DatabaseHandler.FLAT_TABLE + " SET " +
-            DatabaseHandler.FLAT_TABLE_VIEW_COLUMN + " = ?::view" + " WHERE " +
+            keepIfNull(DatabaseHandler.FLAT_TABLE_NAME_COLUMN, "?") + ", " +
+            keepIfNull(DatabaseHandler.FLAT_TABLE_AREA_COLUMN, "?") + ", " +
+            keepIfNull(DatabaseHandler.FLAT_TABLE_NUMBER_OF_ROOMS_COLUMN, "?") + ", " +
+            keepIfNull(DatabaseHandler.FLAT_TABLE_NUMBER_OF_BATHROOMS_COLUMN, "?") + ", " +
+            keepIfNull(DatabaseHandler.FLAT_TABLE_FURNISH_COLUMN, "?::furnish") + ", " +
+            keepIfNull(DatabaseHandler.FLAT_TABLE_VIEW_COLUMN, "?::view") + ", " +
+            keepIfNull(DatabaseHandler.FLAT_TABLE_HOUSE_ID_COLUMN, "?") + " WHERE " +
             DatabaseHandler.FLAT_TABLE_ID_COLUMN + " = ?";
 
     private final String SELECT_ALL_COORDINATES = "SELECT * FROM " + DatabaseHandler.COORDINATES_TABLE;
@@ -68,7 +63,7 @@ public class DatabaseCollectionManager {
             DatabaseHandler.COORDINATES_TABLE_X_COLUMN + ", " +
             DatabaseHandler.COORDINATES_TABLE_Y_COLUMN + ") VALUES (?, ?, ?)";
     private final String UPDATE_COORDINATES_BY_FLAT_ID = "UPDATE " + DatabaseHandler.COORDINATES_TABLE + " SET " +
-            DatabaseHandler.COORDINATES_TABLE_X_COLUMN + " = ?" +
+            DatabaseHandler.COORDINATES_TABLE_X_COLUMN + " = ?, " +
             DatabaseHandler.COORDINATES_TABLE_Y_COLUMN + " = ?" + " WHERE " +
             DatabaseHandler.COORDINATES_TABLE_FLAT_ID_COLUMN + " = ?";
     private final String DELETE_COORDINATES_BY_FLAT_ID = "DELETE FROM " + DatabaseHandler.COORDINATES_TABLE +
@@ -84,18 +79,96 @@ public class DatabaseCollectionManager {
             DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLOORS_COLUMN + ", " +
             DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLATS_ON_FLOOR_COLUMN + ", " +
             DatabaseHandler.HOUSE_TABLE_NUMBER_OF_LIFTS_COLUMN +") VALUES (?, ?, ?, ?, ?)";
-    private final String UPDATE_HOUSE_BY_ID = "UPDATE " + DatabaseHandler.HOUSE_TABLE + " SET " +
-            DatabaseHandler.HOUSE_TABLE_NAME_COLUMN + " = ?" +
-            DatabaseHandler.HOUSE_TABLE_YEAR_COLUMN + " = ?" +
-            DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLOORS_COLUMN + " = ?" +
-            DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLATS_ON_FLOOR_COLUMN + " = ?" +
+    // дом квартиры находится по ее id, поэтому отдельный запрос за house_id не нужен
+    private final String UPDATE_HOUSE_BY_FLAT_ID = "UPDATE " + DatabaseHandler.HOUSE_TABLE + " SET " +
+            DatabaseHandler.HOUSE_TABLE_NAME_COLUMN + " = ?, " +
+            DatabaseHandler.HOUSE_TABLE_YEAR_COLUMN + " = ?, " +
+            DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLOORS_COLUMN + " = ?, " +
+            DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLATS_ON_FLOOR_COLUMN + " = ?, " +
             DatabaseHandler.HOUSE_TABLE_NUMBER_OF_LIFTS_COLUMN + " = ?" + " WHERE " +
-            DatabaseHandler.HOUSE_TABLE_ID_COLUMN + " = ?";
+            DatabaseHandler.HOUSE_TABLE_ID_COLUMN + " = (SELECT " + DatabaseHandler.FLAT_TABLE_HOUSE_ID_COLUMN +
+            " FROM " + DatabaseHandler.FLAT_TABLE + " WHERE " + DatabaseHandler.FLAT_TABLE_ID_COLUMN + " = ?)";
     private final String DELETE_HOUSE_BY_ID = "DELETE FROM " + DatabaseHandler.HOUSE_TABLE +
             " WHERE " + DatabaseHandler.HOUSE_TABLE_ID_COLUMN + " = ?";
 
-    private final String SELECT_USER_BY_FLAT_ID =  "SELECT " + DatabaseHandler.USER_TABLE_USERNAME_COLUMN +
-            " FROM " + DatabaseHandler.FLAT_TABLE + " JOIN  " + DatabaseHandler.USER_TABLE + " ON flat.user_id = my_user.id WHERE flat.id = ?";
+    // массовое удаление элементов пользователя: %s - условие отбора квартир
+    private final String USER_ID_BY_USERNAME = "(SELECT " + DatabaseHandler.USER_TABLE_ID_COLUMN +
+            " FROM " + DatabaseHandler.USER_TABLE + " WHERE " + DatabaseHandler.USER_TABLE_USERNAME_COLUMN + " = ?)";
+    private final String USER_FLATS_WHERE = " WHERE " + DatabaseHandler.FLAT_TABLE_USER_ID_COLUMN + " = " +
+            USER_ID_BY_USERNAME + " AND %s";
+    private final String DELETE_COORDINATES_OF_USER_FLATS = "DELETE FROM " + DatabaseHandler.COORDINATES_TABLE +
+            " WHERE " + DatabaseHandler.COORDINATES_TABLE_FLAT_ID_COLUMN + " IN (SELECT " +
+            DatabaseHandler.FLAT_TABLE_ID_COLUMN + " FROM " + DatabaseHandler.FLAT_TABLE + USER_FLATS_WHERE + ")";
+    private final String DELETE_USER_FLATS = "DELETE FROM " + DatabaseHandler.FLAT_TABLE + USER_FLATS_WHERE +
+            " RETURNING " + DatabaseHandler.FLAT_TABLE_ID_COLUMN + ", " + DatabaseHandler.FLAT_TABLE_HOUSE_ID_COLUMN;
+    private final String DELETE_HOUSES_BY_IDS = "DELETE FROM " + DatabaseHandler.HOUSE_TABLE +
+            " WHERE " + DatabaseHandler.HOUSE_TABLE_ID_COLUMN + " = ANY(?)";
+    private static final String ALL_FLATS = "TRUE";
+    private static final String FLAT_ID_LESS = DatabaseHandler.FLAT_TABLE_ID_COLUMN + " < ?";
+    private static final String FLAT_ID_GREATER = DatabaseHandler.FLAT_TABLE_ID_COLUMN + " > ?";
+    private static final String FLAT_VIEW_EQUALS = DatabaseHandler.FLAT_TABLE_VIEW_COLUMN + " = ?::view";
+    private static final String FLAT_VIEW_IS_NULL = DatabaseHandler.FLAT_TABLE_VIEW_COLUMN + " IS NULL";
+
+    // массовая загрузка: id выделяются заранее, строки передаются командой COPY в формате CSV
+    private final String SELECT_NEXT_IDS = "SELECT nextval(pg_get_serial_sequence(?, ?)) FROM generate_series(1, ?)";
+    private final String COPY_HOUSE = "COPY " + DatabaseHandler.HOUSE_TABLE + " (" +
+            DatabaseHandler.HOUSE_TABLE_ID_COLUMN + ", " +
+            DatabaseHandler.HOUSE_TABLE_NAME_COLUMN + ", " +
+            DatabaseHandler.HOUSE_TABLE_YEAR_COLUMN + ", " +
+            DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLOORS_COLUMN + ", " +
+            DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLATS_ON_FLOOR_COLUMN + ", " +
+            DatabaseHandler.HOUSE_TABLE_NUMBER_OF_LIFTS_COLUMN + ") FROM STDIN WITH (FORMAT csv)";
+    private final String COPY_FLAT = "COPY " + DatabaseHandler.FLAT_TABLE + " (" +
+            DatabaseHandler.FLAT_TABLE_ID_COLUMN + ", " +
+            DatabaseHandler.FLAT_TABLE_NAME_COLUMN + ", " +
+            DatabaseHandler.FLAT_TABLE_CREATION_DATE_COLUMN + ", " +
+            DatabaseHandler.FLAT_TABLE_AREA_COLUMN + ", " +
+            DatabaseHandler.FLAT_TABLE_NUMBER_OF_ROOMS_COLUMN + ", " +
+            DatabaseHandler.FLAT_TABLE_NUMBER_OF_BATHROOMS_COLUMN + ", " +
+            DatabaseHandler.FLAT_TABLE_FURNISH_COLUMN + ", " +
+            DatabaseHandler.FLAT_TABLE_VIEW_COLUMN + ", " +
+            DatabaseHandler.FLAT_TABLE_HOUSE_ID_COLUMN + ", " +
+            DatabaseHandler.FLAT_TABLE_USER_ID_COLUMN + ") FROM STDIN WITH (FORMAT csv)";
+    private final String COPY_COORDINATES = "COPY " + DatabaseHandler.COORDINATES_TABLE + " (" +
+            DatabaseHandler.COORDINATES_TABLE_FLAT_ID_COLUMN + ", " +
+            DatabaseHandler.COORDINATES_TABLE_X_COLUMN + ", " +
+            DatabaseHandler.COORDINATES_TABLE_Y_COLUMN + ") FROM STDIN WITH (FORMAT csv)";
+
+    private static final String HOUSE_NAME_ALIAS = "house_name";
+    private static final String HOUSE_YEAR_ALIAS = "house_year";
+    // вся коллекция одним запросом: квартира, ее координаты, дом и владелец
+    private final String SELECT_COLLECTION = "SELECT f." +
+            DatabaseHandler.FLAT_TABLE_ID_COLUMN + ", f." +
+            DatabaseHandler.FLAT_TABLE_NAME_COLUMN + ", f." +
+            DatabaseHandler.FLAT_TABLE_CREATION_DATE_COLUMN + ", f." +
+            DatabaseHandler.FLAT_TABLE_AREA_COLUMN + ", f." +
+            DatabaseHandler.FLAT_TABLE_NUMBER_OF_ROOMS_COLUMN + ", f." +
+            DatabaseHandler.FLAT_TABLE_NUMBER_OF_BATHROOMS_COLUMN + ", f." +
+            DatabaseHandler.FLAT_TABLE_FURNISH_COLUMN + ", f." +
+            DatabaseHandler.FLAT_TABLE_VIEW_COLUMN + ", f." +
+            DatabaseHandler.FLAT_TABLE_HOUSE_ID_COLUMN + ", c." +
+            DatabaseHandler.COORDINATES_TABLE_X_COLUMN + ", c." +
+            DatabaseHandler.COORDINATES_TABLE_Y_COLUMN + ", h." +
+            DatabaseHandler.HOUSE_TABLE_NAME_COLUMN + " AS " + HOUSE_NAME_ALIAS + ", h." +
+            DatabaseHandler.HOUSE_TABLE_YEAR_COLUMN + " AS " + HOUSE_YEAR_ALIAS + ", h." +
+            DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLOORS_COLUMN + ", h." +
+            DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLATS_ON_FLOOR_COLUMN + ", h." +
+            DatabaseHandler.HOUSE_TABLE_NUMBER_OF_LIFTS_COLUMN + ", u." +
+            DatabaseHandler.USER_TABLE_USERNAME_COLUMN + ", u." +
+            DatabaseHandler.USER_TABLE_PASSWORD_COLUMN +
+            " FROM " + DatabaseHandler.FLAT_TABLE + " f" +
+            " JOIN " + DatabaseHandler.COORDINATES_TABLE + " c ON c." +
+            DatabaseHandler.COORDINATES_TABLE_FLAT_ID_COLUMN + " = f." + DatabaseHandler.FLAT_TABLE_ID_COLUMN +
+            " LEFT JOIN " + DatabaseHandler.HOUSE_TABLE + " h ON h." +
+            DatabaseHandler.HOUSE_TABLE_ID_COLUMN + " = f." + DatabaseHandler.FLAT_TABLE_HOUSE_ID_COLUMN +
+            " LEFT JOIN " + DatabaseHandler.USER_TABLE + " u ON u." +
+            DatabaseHandler.USER_TABLE_ID_COLUMN + " = f." + DatabaseHandler.FLAT_TABLE_USER_ID_COLUMN;
+
+    /**
+     * Количество строк, которое драйвер забирает с сервера БД за один раз при загрузке коллекции
+     * (свойство {@code -Ddb.fetchSize})
+     */
+    public static final int FETCH_SIZE = Integer.getInteger("db.fetchSize", 1000);
 
     private final DatabaseHandler databaseHandler;
     private final DatabaseUserManager databaseUserManager;
@@ -105,7 +178,12 @@ public class DatabaseCollectionManager {
         this.databaseUserManager = databaseUserManager;
     }
 
-    private Flat createFlat(ResultSet resultSet) throws SQLException {
+    /**
+     * Собирает элемент коллекции из строки запроса {@link #SELECT_COLLECTION}
+     *
+     * @param owners уже встреченные владельцы, чтобы элементы одного пользователя ссылались на один объект
+     */
+    private Flat createFlat(ResultSet resultSet, Map<String, User> owners) throws SQLException {
         int id = resultSet.getInt(DatabaseHandler.FLAT_TABLE_ID_COLUMN);
         String name = resultSet.getString(DatabaseHandler.FLAT_TABLE_NAME_COLUMN);
         LocalDateTime creationDate = resultSet.getTimestamp(DatabaseHandler.FLAT_TABLE_CREATION_DATE_COLUMN).toLocalDateTime();
@@ -117,54 +195,62 @@ public class DatabaseCollectionManager {
         if (resultSet.getString(DatabaseHandler.FLAT_TABLE_VIEW_COLUMN) != null) {
             view = View.valueOf(resultSet.getString(DatabaseHandler.FLAT_TABLE_VIEW_COLUMN));
         }
-        Coordinates coordinates = getCoordinatesByFlatId(id);
+        Coordinates coordinates = new Coordinates(resultSet.getInt(DatabaseHandler.COORDINATES_TABLE_X_COLUMN),
+                resultSet.getInt(DatabaseHandler.COORDINATES_TABLE_Y_COLUMN));
         House house = null;
-        if (resultSet.getObject(DatabaseHandler.FLAT_TABLE_HOUSE_ID_COLUMN) != null) {
-            house = getHouseById(resultSet.getInt(DatabaseHandler.FLAT_TABLE_HOUSE_ID_COLUMN));
+        resultSet.getInt(DatabaseHandler.FLAT_TABLE_HOUSE_ID_COLUMN);
+        if (!resultSet.wasNull()) {
+            house = new House(resultSet.getString(HOUSE_NAME_ALIAS),
+                    resultSet.getInt(HOUSE_YEAR_ALIAS),
+                    getNullableLong(resultSet, DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLOORS_COLUMN),
+                    resultSet.getLong(DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLATS_ON_FLOOR_COLUMN),
+                    getNullableLong(resultSet, DatabaseHandler.HOUSE_TABLE_NUMBER_OF_LIFTS_COLUMN));
+        }
+        User owner = null;
+        String username = resultSet.getString(DatabaseHandler.USER_TABLE_USERNAME_COLUMN);
+        if (username != null) {
+            String password = resultSet.getString(DatabaseHandler.USER_TABLE_PASSWORD_COLUMN);
+            owner = owners.computeIfAbsent(username, u -> new User(u, password));
         }
-        User owner = databaseUserManager.getUserById(resultSet.getLong(DatabaseHandler.FLAT_TABLE_USER_ID_COLUMN));
         return new Flat(id, name, coordinates, creationDate, area, numberOfRooms, numberOfBathrooms,
                 furnish, view, house, owner);
     }
 
-    public Hashtable<Integer, Flat> getCollection() throws DatabaseHandlingException {
-        Hashtable<Integer, Flat> flatList = new Hashtable<>();
-        PreparedStatement preparedSelectAllStatement = null;
+    private static Long getNullableLong(ResultSet resultSet, String column) throws SQLException {
+        long value = resultSet.getLong(column);
+        return resultSet.wasNull() ? null : value;
+    }
+
+    /**
+     * Загружает коллекцию одним запросом. Строки читаются курсором порциями по {@link #FETCH_SIZE},
+     * поэтому время загрузки определяется объемом данных, а не числом обращений к БД
+     */
+    public Map<Integer, Flat> getCollection() throws DatabaseHandlingException {
+        Map<Integer, Flat> flatList = new HashMap<>();
+        Map<String, User> owners = new HashMap<>();
+        PreparedStatement preparedSelectCollectionStatement = null;
         try {
-            preparedSelectAllStatement = databaseHandler.getPreparedStatement(SELECT_ALL_FLAT, false);
-            ResultSet resultSet = preparedSelectAllStatement.executeQuery();
+            // драйвер PostgreSQL читает результат курсором только внутри транзакции
+            databaseHandler.setCommitMode();
+            preparedSelectCollectionStatement = databaseHandler.getCursorStatement(SELECT_COLLECTION, FETCH_SIZE);
+            ResultSet resultSet = preparedSelectCollectionStatement.executeQuery();
             while (resultSet.next()) {
                 int key = resultSet.getInt(DatabaseHandler.FLAT_TABLE_ID_COLUMN);
-                flatList.put(key, createFlat(resultSet));
+                flatList.put(key, createFlat(resultSet, owners));
             }
+            App.logger.info("Выполнен запрос SELECT_COLLECTION, загружено элементов: " + flatList.size());
+            databaseHandler.commit();
         } catch (SQLException ex) {
+            App.logger.severe("Произошла ошибка при выполнении запроса SELECT_COLLECTION");
+            databaseHandler.rollback();
             throw new DatabaseHandlingException();
         } finally {
-            databaseHandler.closePreparedStatement(preparedSelectAllStatement);
+            databaseHandler.closePreparedStatement(preparedSelectCollectionStatement);
+            databaseHandler.setNormalMode();
         }
         return flatList;
     }
 
-    public String getUsernameByFlatId(int flatId) throws SQLException {
-        String username;
-        PreparedStatement preparedStatement = null;
-        try {
-            preparedStatement = databaseHandler.getPreparedStatement(SELECT_USER_BY_FLAT_ID, false);
-            preparedStatement.setInt(1, flatId);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            App.logger.info("Выполнен запрос SELECT_USER_BY_FLAT_ID");
-            if (resultSet.next()) {
-                username = resultSet.getString(DatabaseHandler.USER_TABLE_USERNAME_COLUMN);
-            } else throw new SQLException();
-        } catch (SQLException ex) {
-            App.logger.severe("Произошла ошибка при выполнении запроса SELECT_USER_BY_FLAT_ID");
-            throw new SQLException();
-        } finally {
-            databaseHandler.closePreparedStatement(preparedStatement);
-        }
-        return username;
-    }
-
     private int getHouseIdByFlatId(int flatId) throws SQLException {
         int houseId;
         PreparedStatement preparedSelectFlatStatement = null;
@@ -185,60 +271,6 @@ public class DatabaseCollectionManager {
         return houseId;
     }
 
-    private Coordinates getCoordinatesByFlatId(int flatId) throws SQLException {
-        Coordinates coordinates;
-        PreparedStatement preparedSelectCoordinatesStatement = null;
-        try {
-            preparedSelectCoordinatesStatement = databaseHandler.getPreparedStatement(SELECT_COORDINATES_BY_FLAT_ID, false);
-            preparedSelectCoordinatesStatement.setInt(1, flatId);
-            ResultSet resultSet = preparedSelectCoordinatesStatement.executeQuery();
-            App.logger.info("Выполнен запрос SELECT_COORDINATES_BY_FLAT_ID");
-            if (resultSet.next()) {
-                coordinates = new Coordinates(resultSet.getInt(DatabaseHandler.COORDINATES_TABLE_X_COLUMN),
-                        resultSet.getInt(DatabaseHandler.COORDINATES_TABLE_Y_COLUMN));
-            } else throw new SQLException();
-        } catch (SQLException ex) {
-            App.logger.severe("Произошла ошибка при выполнении запроса SELECT_COORDINATES_BY_FLAT_ID");
-            throw new SQLException();
-        } finally {
-            databaseHandler.closePreparedStatement(preparedSelectCoordinatesStatement);
-        }
-        return coordinates;
-    }
-
-    private House getHouseById(int houseId) throws SQLException {
-        House house;
-        PreparedStatement preparedSelectHouseStatement = null;
-        try {
-            preparedSelectHouseStatement = databaseHandler.getPreparedStatement(SELECT_HOUSE_BY_ID, false);
-            preparedSelectHouseStatement.setInt(1, houseId);
-            ResultSet resultSet = preparedSelectHouseStatement.executeQuery();
-            //UserConsole.printCommandTextNext(String.valueOf(resultSet.next()));
-            App.logger.info("Выполнен запрос SELECT_HOUSE_BY_ID");
-            Long number_of_floors = null;
-            Long number_of_lifts = null;
-            if (resultSet.next()) {
-                if (resultSet.getObject(DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLOORS_COLUMN) != null) {
-                    number_of_floors = resultSet.getLong(DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLOORS_COLUMN);
-                }
-                if (resultSet.getObject(DatabaseHandler.HOUSE_TABLE_NUMBER_OF_LIFTS_COLUMN) != null) {
-                    number_of_lifts = resultSet.getLong(DatabaseHandler.HOUSE_TABLE_NUMBER_OF_LIFTS_COLUMN);
-                }
-                house = new House(resultSet.getString(DatabaseHandler.HOUSE_TABLE_NAME_COLUMN),
-                        resultSet.getInt(DatabaseHandler.HOUSE_TABLE_YEAR_COLUMN),
-                        number_of_floors,
-                        resultSet.getLong(DatabaseHandler.HOUSE_TABLE_NUMBER_OF_FLATS_ON_FLOOR_COLUMN),
-                        number_of_lifts);
-            } else throw new SQLException();
-        } catch (SQLException ex) {
-            App.logger.severe("Произошла ошибка при выполнении запроса SELECT_HOUSE_BY_ID");
-            throw new SQLException(ex);
-        } finally {
-            databaseHandler.closePreparedStatement(preparedSelectHouseStatement);
-        }
-        return house;
-    }
-
     public Flat insertFlat(Flat flat, User user) throws DatabaseHandlingException {
         Flat flat1;
         PreparedStatement preparedInsertFlatStatement = null;
@@ -310,87 +342,262 @@ public class DatabaseCollectionManager {
         }
     }
 
-    public void updateFlatById(int flatId, Flat flat) throws DatabaseHandlingException {
-        PreparedStatement preparedUpdateFlatNameStatement = null;
-        PreparedStatement preparedUpdateFlatAreaStatement = null;
-        PreparedStatement preparedUpdateFlatNumberOfRoomsStatement = null;
-        PreparedStatement preparedUpdateFlatNumberOfBathroomsStatement = null;
-        PreparedStatement preparedUpdateFlatFurnishStatement = null;
-        PreparedStatement preparedUpdateFlatViewStatement = null;
-        PreparedStatement preparedUpdateCoordinatesStatement = null;
-        PreparedStatement preparedUpdateHouseStatement = null;
+    /**
+     * Добавляет несколько элементов пакетами INSERT в одной транзакции: по одному пакету на дома,
+     * квартиры и координаты. Сгенерированные id возвращаются драйвером в порядке добавления в пакет
+     *
+     * @param flats новые элементы
+     * @param user  владелец элементов
+     * @return добавленные элементы с присвоенными id в том же порядке
+     */
+    public List<Flat> insertFlats(List<Flat> flats, User user) throws DatabaseHandlingException {
+        List<Flat> insertedFlats = new ArrayList<>(flats.size());
+        if (flats.isEmpty()) return insertedFlats;
+        PreparedStatement preparedInsertHouseStatement = null;
+        PreparedStatement preparedInsertFlatStatement = null;
+        PreparedStatement preparedInsertCoordinatesStatement = null;
         try {
             databaseHandler.setCommitMode();
             databaseHandler.setSavepoint();
 
-            preparedUpdateFlatNameStatement = databaseHandler.getPreparedStatement(UPDATE_FLAT_NAME_BY_ID, false);
-            preparedUpdateFlatAreaStatement = databaseHandler.getPreparedStatement(UPDATE_FLAT_AREA_BY_ID, false);
-            preparedUpdateFlatNumberOfRoomsStatement = databaseHandler.getPreparedStatement(UPDATE_FLAT_NUMBER_OF_ROOMS_BY_ID, false);
-            preparedUpdateFlatNumberOfBathroomsStatement = databaseHandler.getPreparedStatement(UPDATE_FLAT_NUMBER_OF_BATHROOMS_BY_ID,false);
-            preparedUpdateFlatFurnishStatement = databaseHandler.getPreparedStatement(UPDATE_FLAT_FURNISH_BY_ID,false);
-            preparedUpdateFlatViewStatement = databaseHandler.getPreparedStatement(UPDATE_FLAT_VIEW_BY_ID,false);
-            preparedUpdateCoordinatesStatement = databaseHandler.getPreparedStatement(UPDATE_COORDINATES_BY_FLAT_ID,false);
-            preparedUpdateHouseStatement = databaseHandler.getPreparedStatement(UPDATE_HOUSE_BY_ID,false);
-
-            if (flat.getName() != null) {
-                preparedUpdateFlatNameStatement.setString(1, flat.getName());
-                preparedUpdateFlatNameStatement.setInt(2, flatId);
-                if (preparedUpdateFlatNameStatement.executeUpdate() == 0) throw new SQLException();
-                App.logger.info("Выполнен запрос UPDATE_FLAT_NAME_BY_ID");
+            LocalDateTime creationTime = LocalDateTime.now();
+            long userId = databaseUserManager.getUserIdByUsername(user);
+            if (userId == -1) throw new SQLException();
+
+            List<Integer> houseIds = new ArrayList<>();
+            if (flats.stream().anyMatch(flat -> flat.getHouse() != null)) {
+                preparedInsertHouseStatement = databaseHandler.getPreparedStatement(INSERT_HOUSE, true);
+                for (Flat flat : flats) {
+                    if (flat.getHouse() == null) continue;
+                    setHouseParameters(preparedInsertHouseStatement, flat.getHouse());
+                    preparedInsertHouseStatement.addBatch();
+                }
+                int houseCount = preparedInsertHouseStatement.executeBatch().length;
+                houseIds = getGeneratedIds(preparedInsertHouseStatement);
+                if (houseIds.size() != houseCount) throw new SQLException();
+                App.logger.info("Выполнен пакет запросов INSERT_HOUSE, строк: " + houseIds.size());
             }
 
-            if (flat.getCoordinates() != null) {
-                preparedUpdateCoordinatesStatement.setInt(1, flat.getCoordinates().getX());
-                preparedUpdateCoordinatesStatement.setInt(2, flat.getCoordinates().getY());
-                preparedUpdateCoordinatesStatement.setInt(3, flatId);
-                if (preparedUpdateCoordinatesStatement.executeUpdate() == 0) throw new SQLException();
-                App.logger.info("Выполнен запрос UPDATE_COORDINATES_BY_FLAT_ID");
+            preparedInsertFlatStatement = databaseHandler.getPreparedStatement(INSERT_FLAT, true);
+            int houseIndex = 0;
+            for (Flat flat : flats) {
+                preparedInsertFlatStatement.setString(1, flat.getName());
+                preparedInsertFlatStatement.setTimestamp(2, Timestamp.valueOf(creationTime));
+                preparedInsertFlatStatement.setInt(3, flat.getArea());
+                preparedInsertFlatStatement.setLong(4, flat.getNumberOfRooms());
+                preparedInsertFlatStatement.setLong(5, flat.getNumberOfBathrooms());
+                preparedInsertFlatStatement.setString(6, flat.getFurnish().toString());
+                preparedInsertFlatStatement.setString(7, flat.getView() == null ? null : flat.getView().toString());
+                preparedInsertFlatStatement.setObject(8, flat.getHouse() == null ? null : houseIds.get(houseIndex++));
+                preparedInsertFlatStatement.setLong(9, userId);
+                preparedInsertFlatStatement.addBatch();
             }
-
-            if (flat.getArea() != -1) {
-                preparedUpdateFlatAreaStatement.setInt(1, flat.getArea());
-                preparedUpdateFlatAreaStatement.setInt(2, flatId);
-                if (preparedUpdateFlatAreaStatement.executeUpdate() == 0) throw new SQLException();
-                App.logger.info("Выполнен запрос UPDATE_FLAT_AREA_BY_ID");
+            preparedInsertFlatStatement.executeBatch();
+            List<Integer> flatIds = getGeneratedIds(preparedInsertFlatStatement);
+            if (flatIds.size() != flats.size()) throw new SQLException();
+            App.logger.info("Выполнен пакет запросов INSERT_FLAT, строк: " + flatIds.size());
+
+            preparedInsertCoordinatesStatement = databaseHandler.getPreparedStatement(INSERT_COORDINATES, false);
+            for (int i = 0; i < flats.size(); i++) {
+                Flat flat = flats.get(i);
+                preparedInsertCoordinatesStatement.setInt(1, flatIds.get(i));
+                preparedInsertCoordinatesStatement.setInt(2, flat.getCoordinates().getX());
+                preparedInsertCoordinatesStatement.setInt(3, flat.getCoordinates().getY());
+                preparedInsertCoordinatesStatement.addBatch();
+                insertedFlats.add(new Flat(flatIds.get(i), flat.getName(), flat.getCoordinates(), creationTime,
+                        flat.getArea(), flat.getNumberOfRooms(), flat.getNumberOfBathrooms(),
+                        flat.getFurnish(), flat.getView(), flat.getHouse(), user));
             }
+            preparedInsertCoordinatesStatement.executeBatch();
+            App.logger.info("Выполнен пакет запросов INSERT_COORDINATES, строк: " + flats.size());
 
-            if (flat.getNumberOfRooms() != -1) {
-                preparedUpdateFlatNumberOfRoomsStatement.setLong(1, flat.getNumberOfRooms());
-                preparedUpdateFlatNumberOfRoomsStatement.setLong(2, flatId);
-                if (preparedUpdateFlatNumberOfRoomsStatement.executeUpdate() == 0) throw new SQLException();
-                App.logger.info("Выполнен запрос UPDATE_FLAT_NUMBER_OF_ROOMS_BY_ID");
+            databaseHandler.commit();
+            return insertedFlats;
+        } catch (SQLException ex) {
+            App.logger.severe("Произошла ошибка при выполнении пакета запросов на добавление объектов");
+            databaseHandler.rollback();
+            throw new DatabaseHandlingException();
+        } finally {
+            databaseHandler.closePreparedStatement(preparedInsertHouseStatement);
+            databaseHandler.closePreparedStatement(preparedInsertFlatStatement);
+            databaseHandler.closePreparedStatement(preparedInsertCoordinatesStatement);
+            databaseHandler.setNormalMode();
+        }
+    }
+
+    // id, сгенерированные выполненным пакетом, в порядке добавления строк
+    private static List<Integer> getGeneratedIds(PreparedStatement preparedStatement) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        ResultSet generatedKeys = preparedStatement.getGeneratedKeys();
+        while (generatedKeys.next()) {
+            ids.add(generatedKeys.getInt(1));
+        }
+        return ids;
+    }
+
+    /**
+     * Добавляет множество элементов командой COPY: сначала выделяются id квартир и домов,
+     * затем дома, квартиры и координаты загружаются тремя потоками строк в одной транзакции.
+     * Число обращений к БД не зависит от количества элементов
+     *
+     * @param flats новые элементы
+     * @param user  владелец элементов
+     * @return добавленные элементы с присвоенными id в том же порядке
+     */
+    public List<Flat> copyFlats(List<Flat> flats, User user) throws DatabaseHandlingException {
+        List<Flat> insertedFlats = new ArrayList<>(flats.size());
+        if (flats.isEmpty()) return insertedFlats;
+        try {
+            databaseHandler.setCommitMode();
+            databaseHandler.setSavepoint();
+
+            LocalDateTime creationTime = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+            long userId = databaseUserManager.getUserIdByUsername(user);
+            if (userId == -1) throw new SQLException();
+            int houseCount = (int) flats.stream().filter(flat -> flat.getHouse() != null).count();
+            List<Integer> flatIds = selectNextIds(DatabaseHandler.FLAT_TABLE, DatabaseHandler.FLAT_TABLE_ID_COLUMN, flats.size());
+            List<Integer> houseIds = selectNextIds(DatabaseHandler.HOUSE_TABLE, DatabaseHandler.HOUSE_TABLE_ID_COLUMN, houseCount);
+
+            StringBuilder houseRows = new StringBuilder();
+            StringBuilder flatRows = new StringBuilder();
+            StringBuilder coordinatesRows = new StringBuilder();
+            int houseIndex = 0;
+            for (int i = 0; i < flats.size(); i++) {
+                Flat flat = flats.get(i);
+                int flatId = flatIds.get(i);
+                Integer houseId = null;
+                if (flat.getHouse() != null) {
+                    houseId = houseIds.get(houseIndex++);
+                    House house = flat.getHouse();
+                    appendCsvRow(houseRows, houseId, house.getName(), house.getYear(), house.getNumberOfFloors(),
+                            house.getNumberOfFlatsOnFloor(), house.getNumberOfLifts());
+                }
+                appendCsvRow(flatRows, flatId, flat.getName(), creationTime, flat.getArea(), flat.getNumberOfRooms(),
+                        flat.getNumberOfBathrooms(), flat.getFurnish(), flat.getView(), houseId, userId);
+                appendCsvRow(coordinatesRows, flatId, flat.getCoordinates().getX(), flat.getCoordinates().getY());
+                insertedFlats.add(new Flat(flatId, flat.getName(), flat.getCoordinates(), creationTime,
+                        flat.getArea(), flat.getNumberOfRooms(), flat.getNumberOfBathrooms(),
+                        flat.getFurnish(), flat.getView(), flat.getHouse(), user));
             }
 
-            if (flat.getNumberOfBathrooms() != -1) {
-                preparedUpdateFlatNumberOfBathroomsStatement.setLong(1, flat.getNumberOfBathrooms());
-                preparedUpdateFlatNumberOfBathroomsStatement.setLong(2, flatId);
-                if (preparedUpdateFlatNumberOfBathroomsStatement.executeUpdate() == 0) throw new SQLException();
-                App.logger.info("Выполнен запрос UPDATE_FLAT_NUMBER_OF_BATHROOMS_BY_ID");
+            CopyManager copyManager = databaseHandler.getCopyManager();
+            if (houseCount > 0) {
+                copyManager.copyIn(COPY_HOUSE, new StringReader(houseRows.toString()));
+                App.logger.info("Выполнен запрос COPY_HOUSE, строк: " + houseCount);
             }
+            copyManager.copyIn(COPY_FLAT, new StringReader(flatRows.toString()));
+            App.logger.info("Выполнен запрос COPY_FLAT, строк: " + flats.size());
+            copyManager.copyIn(COPY_COORDINATES, new StringReader(coordinatesRows.toString()));
+            App.logger.info("Выполнен запрос COPY_COORDINATES, строк: " + flats.size());
 
-            if (flat.getFurnish() != null) {
-                preparedUpdateFlatFurnishStatement.setString(1, flat.getFurnish().toString());
-                preparedUpdateFlatFurnishStatement.setLong(2, flatId);
-                if (preparedUpdateFlatFurnishStatement.executeUpdate() == 0) throw new SQLException();
-                App.logger.info("Выполнен запрос UPDATE_FLAT_FURNISH_BY_ID");
+            databaseHandler.commit();
+            return insertedFlats;
+        } catch (SQLException | IOException ex) {
+            App.logger.severe("Произошла ошибка при массовой загрузке объектов");
+            databaseHandler.rollback();
+            throw new DatabaseHandlingException();
+        } finally {
+            databaseHandler.setNormalMode();
+        }
+    }
+
+    // выделяет count значений последовательности id таблицы одним запросом
+    private List<Integer> selectNextIds(String table, String idColumn, int count) throws SQLException {
+        List<Integer> ids = new ArrayList<>(count);
+        if (count == 0) return ids;
+        PreparedStatement preparedSelectNextIdsStatement = null;
+        try {
+            preparedSelectNextIdsStatement = databaseHandler.getPreparedStatement(SELECT_NEXT_IDS, false);
+            preparedSelectNextIdsStatement.setString(1, table);
+            preparedSelectNextIdsStatement.setString(2, idColumn);
+            preparedSelectNextIdsStatement.setInt(3, count);
+            ResultSet resultSet = preparedSelectNextIdsStatement.executeQuery();
+            while (resultSet.next()) {
+                ids.add(resultSet.getInt(1));
             }
+            App.logger.info("Выполнен запрос SELECT_NEXT_IDS для таблицы " + table);
+        } finally {
+            databaseHandler.closePreparedStatement(preparedSelectNextIdsStatement);
+        }
+        if (ids.size() != count) throw new SQLException();
+        return ids;
+    }
 
-            if (flat.getView() != null) {
-                preparedUpdateFlatViewStatement.setString(1, flat.getView().toString());
-                preparedUpdateFlatViewStatement.setLong(2, flatId);
-                if (preparedUpdateFlatViewStatement.executeUpdate() == 0) throw new SQLException();
-                App.logger.info("Выполнен запрос UPDATE_FLAT_VIEW_BY_ID");
+    // строка CSV для COPY: строки в кавычках, null - пустое поле без кавычек
+    private static void appendCsvRow(StringBuilder rows, Object... values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) rows.append(',');
+            Object value = values[i];
+            if (value == null) continue;
+            if (value instanceof String string) {
+                rows.append('"').append(string.replace("\"", "\"\"")).append('"');
+            } else {
+                rows.append(value);
             }
+        }
+        rows.append('\n');
+    }
+
+    /**
+     * Обновляет элемент по id. Поля, которые в переданном объекте не заданы (null или -1), не меняются.
+     * Все поля квартиры обновляются одним запросом с постоянным текстом (незаданные поля передаются как null
+     * и сохраняют прежнее значение), поэтому у него один закэшированный план; координаты и дом - не более
+     * чем одним запросом каждый
+     *
+     * @param flatId id элемента
+     * @param flat   новые значения полей
+     */
+    public void updateFlatById(int flatId, Flat flat) throws DatabaseHandlingException {
+        PreparedStatement preparedUpdateHouseStatement = null;
+        PreparedStatement preparedInsertHouseStatement = null;
+        PreparedStatement preparedUpdateFlatStatement = null;
+        PreparedStatement preparedUpdateCoordinatesStatement = null;
+        try {
+            databaseHandler.setCommitMode();
+            databaseHandler.setSavepoint();
 
+            Integer newHouseId = null;
             if (flat.getHouse() != null) {
-                preparedUpdateHouseStatement.setString(1, flat.getHouse().getName());
-                preparedUpdateHouseStatement.setInt(2, flat.getHouse().getYear());
-                preparedUpdateHouseStatement.setLong(3, flat.getHouse().getNumberOfFloors());
-                preparedUpdateHouseStatement.setLong(4, flat.getHouse().getNumberOfFlatsOnFloor());
-                preparedUpdateHouseStatement.setLong(5, flat.getHouse().getNumberOfLifts());
-                preparedUpdateHouseStatement.setLong(6, flatId);
-                if (preparedUpdateHouseStatement.executeUpdate() == 0) throw new SQLException();
-                App.logger.info("Выполнен запрос UPDATE_HOUSE_BY_ID");
+                preparedUpdateHouseStatement = databaseHandler.getPreparedStatement(UPDATE_HOUSE_BY_FLAT_ID, false);
+                setHouseParameters(preparedUpdateHouseStatement, flat.getHouse());
+                preparedUpdateHouseStatement.setInt(6, flatId);
+                if (preparedUpdateHouseStatement.executeUpdate() == 0) {
+                    // у квартиры еще не было дома
+                    preparedInsertHouseStatement = databaseHandler.getPreparedStatement(INSERT_HOUSE, true);
+                    setHouseParameters(preparedInsertHouseStatement, flat.getHouse());
+                    if (preparedInsertHouseStatement.executeUpdate() == 0) throw new SQLException();
+                    ResultSet generatedHouseKeys = preparedInsertHouseStatement.getGeneratedKeys();
+                    if (generatedHouseKeys.next()) {
+                        newHouseId = generatedHouseKeys.getInt(1);
+                    } else throw new SQLException();
+                    App.logger.info("Выполнен запрос INSERT_HOUSE");
+                } else {
+                    App.logger.info("Выполнен запрос UPDATE_HOUSE_BY_FLAT_ID");
+                }
+            }
+
+            if (flat.getName() != null || flat.getArea() != -1 || flat.getNumberOfRooms() != -1 || flat.getNumberOfBathrooms() != -1
+                    || flat.getFurnish() != null || flat.getView() != null || newHouseId != null) {
+                preparedUpdateFlatStatement = databaseHandler.getPreparedStatement(UPDATE_FLAT_BY_ID, false);
+                preparedUpdateFlatStatement.setString(1, flat.getName());
+                preparedUpdateFlatStatement.setObject(2, flat.getArea() == -1 ? null : flat.getArea(), Types.INTEGER);
+                preparedUpdateFlatStatement.setObject(3, flat.getNumberOfRooms() == -1 ? null : flat.getNumberOfRooms(), Types.BIGINT);
+                preparedUpdateFlatStatement.setObject(4, flat.getNumberOfBathrooms() == -1 ? null : flat.getNumberOfBathrooms(), Types.BIGINT);
+                preparedUpdateFlatStatement.setString(5, flat.getFurnish() == null ? null : flat.getFurnish().toString());
+                preparedUpdateFlatStatement.setString(6, flat.getView() == null ? null : flat.getView().toString());
+                preparedUpdateFlatStatement.setObject(7, newHouseId, Types.INTEGER);
+                preparedUpdateFlatStatement.setInt(8, flatId);
+                if (preparedUpdateFlatStatement.executeUpdate() == 0) throw new SQLException();
+                App.logger.info("Выполнен запрос UPDATE_FLAT_BY_ID");
+            }
+
+            if (flat.getCoordinates() != null) {
+                preparedUpdateCoordinatesStatement = databaseHandler.getPreparedStatement(UPDATE_COORDINATES_BY_FLAT_ID, false);
+                preparedUpdateCoordinatesStatement.setInt(1, flat.getCoordinates().getX());
+                preparedUpdateCoordinatesStatement.setInt(2, flat.getCoordinates().getY());
+                preparedUpdateCoordinatesStatement.setInt(3, flatId);
+                if (preparedUpdateCoordinatesStatement.executeUpdate() == 0) throw new SQLException();
+                App.logger.info("Выполнен запрос UPDATE_COORDINATES_BY_FLAT_ID");
             }
 
             databaseHandler.commit();
@@ -399,18 +606,27 @@ public class DatabaseCollectionManager {
             databaseHandler.rollback();
             throw new DatabaseHandlingException();
         } finally {
-            databaseHandler.closePreparedStatement(preparedUpdateFlatNameStatement);
-            databaseHandler.closePreparedStatement(preparedUpdateFlatAreaStatement);
-            databaseHandler.closePreparedStatement(preparedUpdateFlatNumberOfRoomsStatement);
-            databaseHandler.closePreparedStatement(preparedUpdateFlatNumberOfBathroomsStatement);
-            databaseHandler.closePreparedStatement(preparedUpdateFlatFurnishStatement);
-            databaseHandler.closePreparedStatement(preparedUpdateFlatViewStatement);
-            databaseHandler.closePreparedStatement(preparedUpdateCoordinatesStatement);
             databaseHandler.closePreparedStatement(preparedUpdateHouseStatement);
+            databaseHandler.closePreparedStatement(preparedInsertHouseStatement);
+            databaseHandler.closePreparedStatement(preparedUpdateFlatStatement);
+            databaseHandler.closePreparedStatement(preparedUpdateCoordinatesStatement);
             databaseHandler.setNormalMode();
         }
     }
 
+    private static String keepIfNull(String column, String parameter) {
+        return column + " = COALESCE(" + parameter + ", " + column + ")";
+    }
+
+    // заполняет поля дома в INSERT_HOUSE и UPDATE_HOUSE_BY_FLAT_ID (параметры 1-5)
+    private void setHouseParameters(PreparedStatement preparedStatement, House house) throws SQLException {
+        preparedStatement.setString(1, house.getName());
+        preparedStatement.setInt(2, house.getYear());
+        preparedStatement.setObject(3, house.getNumberOfFloors());
+        preparedStatement.setLong(4, house.getNumberOfFlatsOnFloor());
+        preparedStatement.setObject(5, house.getNumberOfLifts());
+    }
+
     public void deleteFlatById(int flatId) throws DatabaseHandlingException {
         PreparedStatement preparedDeleteHouseStatement = null;
         PreparedStatement preparedDeleteFlatStatement = null;
@@ -443,6 +659,106 @@ public class DatabaseCollectionManager {
         }
     }
 
+    /**
+     * Удаляет все элементы пользователя
+     *
+     * @return id удаленных элементов
+     */
+    public List<Integer> deleteFlatsByUser(User user) throws DatabaseHandlingException {
+        return deleteUserFlats(user, ALL_FLATS);
+    }
+
+    /**
+     * Удаляет элементы пользователя с id меньше заданного
+     *
+     * @return id удаленных элементов
+     */
+    public List<Integer> deleteFlatsByUserWithIdLessThan(User user, int id) throws DatabaseHandlingException {
+        return deleteUserFlats(user, FLAT_ID_LESS, id);
+    }
+
+    /**
+     * Удаляет элементы пользователя с id больше заданного
+     *
+     * @return id удаленных элементов
+     */
+    public List<Integer> deleteFlatsByUserWithIdGreaterThan(User user, int id) throws DatabaseHandlingException {
+        return deleteUserFlats(user, FLAT_ID_GREATER, id);
+    }
+
+    /**
+     * Удаляет элементы пользователя с заданным видом
+     *
+     * @param view вид, null - элементы без вида
+     * @return id удаленных элементов
+     */
+    public List<Integer> deleteFlatsByUserAndView(User user, View view) throws DatabaseHandlingException {
+        if (view == null) return deleteUserFlats(user, FLAT_VIEW_IS_NULL);
+        return deleteUserFlats(user, FLAT_VIEW_EQUALS, view.toString());
+    }
+
+    /**
+     * Удаляет отобранные условием элементы пользователя вместе с их координатами и домами.
+     * Независимо от числа элементов выполняется три запроса в одной транзакции
+     *
+     * @param filter     условие отбора квартир
+     * @param parameters значения параметров условия
+     * @return id удаленных элементов
+     */
+    private List<Integer> deleteUserFlats(User user, String filter, Object... parameters) throws DatabaseHandlingException {
+        List<Integer> flatIds = new ArrayList<>();
+        List<Integer> houseIds = new ArrayList<>();
+        PreparedStatement preparedDeleteCoordinatesStatement = null;
+        PreparedStatement preparedDeleteFlatsStatement = null;
+        PreparedStatement preparedDeleteHousesStatement = null;
+        try {
+            databaseHandler.setCommitMode();
+            databaseHandler.setSavepoint();
+
+            preparedDeleteCoordinatesStatement = databaseHandler.getPreparedStatement(
+                    String.format(DELETE_COORDINATES_OF_USER_FLATS, filter), false);
+            setUserFlatsParameters(preparedDeleteCoordinatesStatement, user, parameters);
+            preparedDeleteCoordinatesStatement.executeUpdate();
+            App.logger.info("Выполнен запрос DELETE_COORDINATES_OF_USER_FLATS");
+
+            preparedDeleteFlatsStatement = databaseHandler.getPreparedStatement(String.format(DELETE_USER_FLATS, filter), false);
+            setUserFlatsParameters(preparedDeleteFlatsStatement, user, parameters);
+            ResultSet resultSet = preparedDeleteFlatsStatement.executeQuery();
+            while (resultSet.next()) {
+                flatIds.add(resultSet.getInt(DatabaseHandler.FLAT_TABLE_ID_COLUMN));
+                int houseId = resultSet.getInt(DatabaseHandler.FLAT_TABLE_HOUSE_ID_COLUMN);
+                if (!resultSet.wasNull()) houseIds.add(houseId);
+            }
+            App.logger.info("Выполнен запрос DELETE_USER_FLATS, удалено элементов: " + flatIds.size());
+
+            if (!houseIds.isEmpty()) {
+                preparedDeleteHousesStatement = databaseHandler.getPreparedStatement(DELETE_HOUSES_BY_IDS, false);
+                preparedDeleteHousesStatement.setArray(1, databaseHandler.createArray("integer", houseIds.toArray()));
+                preparedDeleteHousesStatement.executeUpdate();
+                App.logger.info("Выполнен запрос DELETE_HOUSES_BY_IDS");
+            }
+
+            databaseHandler.commit();
+            return flatIds;
+        } catch (SQLException ex) {
+            App.logger.severe("Произошла ошибка при выполнении группы запросов на удаление объектов");
+            databaseHandler.rollback();
+            throw new DatabaseHandlingException();
+        } finally {
+            databaseHandler.closePreparedStatement(preparedDeleteCoordinatesStatement);
+            databaseHandler.closePreparedStatement(preparedDeleteFlatsStatement);
+            databaseHandler.closePreparedStatement(preparedDeleteHousesStatement);
+            databaseHandler.setNormalMode();
+        }
+    }
+
+    private void setUserFlatsParameters(PreparedStatement preparedStatement, User user, Object... parameters) throws SQLException {
+        preparedStatement.setString(1, user.getUsername());
+        for (int i = 0; i < parameters.length; i++) {
+            preparedStatement.setObject(i + 2, parameters[i]);
+        }
+    }
+
     public boolean checkFlatUserId(int flatId, User user) throws DatabaseHandlingException {
         PreparedStatement preparedSelectFlatStatement = null;
         try {
@@ -461,7 +777,7 @@ public class DatabaseCollectionManager {
     }
 
     public void clearCollection() throws DatabaseHandlingException {
-        Hashtable<Integer, Flat> flatList = getCollection();
+        Map<Integer, Flat> flatList = getCollection();
         for (Map.Entry<Integer, Flat> entry : flatList.entrySet()) {
             Flat flat = getCollection().get(entry.getKey());
             deleteFlatById(flat.getId());
@@ -1,6 +1,8 @@
 package server.utility;
 
 import common.utility.UserConsole;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 import server.App;
 
 import java.sql.*;
@@ -43,7 +45,23 @@ public class DatabaseHandler {
     private String url;
     private String user;
     private String password;
-    private Connection connection;
+    private ConnectionPool pool;
+
+    /*
+     * Соединение, выданное пулом текущему потоку. Все вызовы одной команды (в том числе вложенные,
+     * например поиск id пользователя внутри вставки) работают с одним соединением; оно возвращается в пул,
+     * когда закрыт последний запрос и завершен режим транзакции.
+     */
+    private final ThreadLocal<Lease> lease = new ThreadLocal<>();
+
+    private static class Lease {
+        private final ConnectionPool.PooledConnection pooledConnection;
+        private int holds;
+
+        private Lease(ConnectionPool.PooledConnection pooledConnection) {
+            this.pooledConnection = pooledConnection;
+        }
+    }
 
     public DatabaseHandler(String url, String user, String password) {
         this.url = url;
@@ -56,7 +74,7 @@ public class DatabaseHandler {
 
     private void createDatabase() {
         try {
-            Statement statement = connection.createStatement();
+            Statement statement = acquire().getConnection().createStatement();
 
             statement.executeUpdate("DO $$ BEGIN" +
                     "    CREATE TYPE furnish AS ENUM ('DESIGNER', 'NONE', 'FINE', 'BAD');" +
@@ -102,20 +120,23 @@ public class DatabaseHandler {
                             "x INTEGER NOT NULL," +
                             "y INTEGER NOT NULL " +
                             "CHECK(x <= 713 AND y > -397))");
+            // запросы по координатам обслуживает индекс в памяти сервера, индекс БД только замедлял бы запись
+            statement.executeUpdate("DROP INDEX IF EXISTS coordinates_point_idx");
 
+            statement.close();
         } catch (SQLException e) {
             UserConsole.printCommandError("Произошла ошибка при создании базы данных");
             App.logger.severe("Произошла ошибка при создании базы данных");
-        } catch (NullPointerException ex) {
-            UserConsole.printCommandError("Нет подключения к бд");
-            App.logger.severe("Нет подключения к бд");
+        } finally {
+            release();
         }
     }
 
     private void connectToDataBase() {
         try {
             Class.forName(JDBC_DRIVER);
-            connection = DriverManager.getConnection(url, user, password);
+            pool = ConnectionPool.fromSystemProperties(url, user, password);
+            pool.start();
             UserConsole.printCommandTextNext("Соединение с базой данных установлено");
             App.logger.info("Соединение с базой данных установлено");
         } catch (SQLException ex) {
@@ -130,14 +151,31 @@ public class DatabaseHandler {
     public PreparedStatement getPreparedStatement(String sqlStatement, boolean generateKeys) throws SQLException {
         PreparedStatement preparedStatement;
         try {
-            if (connection == null) throw new SQLException();
             int autoGenerateKeys = generateKeys ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS;
-            preparedStatement = connection.prepareStatement(sqlStatement, autoGenerateKeys);
-            App.logger.info("Подготовлен SQL запрос '" + sqlStatement + "'.");
+            preparedStatement = acquire().getStatementCache().prepare(sqlStatement, autoGenerateKeys);
+            return preparedStatement;
+        } catch (SQLException ex) {
+            release();
+            App.logger.severe("Произошла ошибка при подготовке SQL запроса '" + sqlStatement + "'.");
+            throw new SQLException(ex);
+        }
+    }
+
+    /**
+     * Подготавливает запрос, результат которого читается курсором только вперед порциями по fetchSize строк.
+     * Драйвер PostgreSQL использует курсор только при выключенном автоподтверждении ({@link #setCommitMode()})
+     *
+     * @param sqlStatement запрос
+     * @param fetchSize    количество строк в одной порции
+     */
+    public PreparedStatement getCursorStatement(String sqlStatement, int fetchSize) throws SQLException {
+        PreparedStatement preparedStatement;
+        try {
+            preparedStatement = acquire().getStatementCache().prepareCursor(sqlStatement, fetchSize);
             return preparedStatement;
         } catch (SQLException ex) {
+            release();
             App.logger.severe("Произошла ошибка при подготовке SQL запроса '" + sqlStatement + "'.");
-            if (connection == null) App.logger.severe("Соединение с базой данных не установлено");
             throw new SQLException(ex);
         }
     }
@@ -145,30 +183,36 @@ public class DatabaseHandler {
     public void closePreparedStatement(PreparedStatement sqlStatement) {
         if (sqlStatement == null) return;
         try {
-            sqlStatement.close();
-            App.logger.info("Закрыт SQL запрос '" + sqlStatement + "'.");
+            current().getStatementCache().giveBack(sqlStatement);
+            App.logger.fine("Закрыт SQL запрос '" + sqlStatement + "'.");
         } catch (SQLException ex) {
             App.logger.severe("Произошла ошибка при закрытии" +
                     " SQL запроса '" + sqlStatement + "'.");
+        } finally {
+            release();
         }
     }
 
     public void closeConnection() {
-        if (connection == null) return;
-        try {
-            connection.close();
-            UserConsole.printCommandTextNext("Соединение с базой данных разорвано");
-            App.logger.info("Соединение с базой данных разорвано");
-        } catch (SQLException ex) {
-            UserConsole.printCommandError("Произошла ошибка при разрыве соединения с базой данных");
-            App.logger.severe("Произошла ошибка при разрыве соединения с базой данных");
-        }
+        if (pool == null) return;
+        pool.close();
+        UserConsole.printCommandTextNext("Соединение с базой данных разорвано");
+        App.logger.info("Соединение с базой данных разорвано");
+    }
+
+    /**
+     * @return сводка состояния пула соединений
+     */
+    public String getPoolStats() {
+        return pool == null ? "Пул соединений не создан" : pool.getStats();
     }
 
+    /**
+     * Начинает транзакцию на соединении текущего потока. Соединение остается за потоком до {@link #setNormalMode()}
+     */
     public void setCommitMode() {
         try {
-            if (connection == null) throw new SQLException();
-            connection.setAutoCommit(false);
+            acquire().getConnection().setAutoCommit(false);
         } catch (SQLException ex) {
             App.logger.severe("Произошла ошибка при установлении режима транзакции базы данных");
         }
@@ -176,17 +220,17 @@ public class DatabaseHandler {
 
     public void setNormalMode() {
         try {
-            if (connection == null) throw new SQLException();
-            connection.setAutoCommit(true);
+            current().getConnection().setAutoCommit(true);
         } catch (SQLException ex) {
             App.logger.severe("Произошла ошибка при установлении нормального режима базы данных");
+        } finally {
+            release();
         }
     }
 
     public void commit() {
         try {
-            if (connection == null) throw new SQLException();
-            connection.commit();
+            current().getConnection().commit();
         } catch (SQLException ex) {
             App.logger.severe("Произошла ошибка при подтверждении нового состояния базы данных");
         }
@@ -194,8 +238,7 @@ public class DatabaseHandler {
 
     public void rollback() {
         try {
-            if (connection == null) throw new SQLException();
-            connection.rollback();
+            current().getConnection().rollback();
         } catch (SQLException ex) {
             App.logger.severe("Произошла ошибка при возврате исходного состояния базы данных");
         }
@@ -203,10 +246,57 @@ public class DatabaseHandler {
 
     public void setSavepoint() {
         try {
-            if (connection == null) throw new SQLException();
-            connection.setSavepoint();
+            current().getConnection().setSavepoint();
         } catch (SQLException ex) {
             App.logger.severe("Произошла ошибка при сохранении состояния базы данных");
         }
     }
+
+    /**
+     * Создает массив SQL на соединении текущего потока, чтобы передать список значений одним параметром
+     * ({@code = ANY(?)}). Вызывается внутри транзакции ({@link #setCommitMode()})
+     *
+     * @param typeName имя типа элементов в PostgreSQL
+     * @param elements элементы
+     */
+    public Array createArray(String typeName, Object[] elements) throws SQLException {
+        return current().getConnection().createArrayOf(typeName, elements);
+    }
+
+    /**
+     * Выдает интерфейс COPY драйвера PostgreSQL для соединения текущего потока.
+     * Вызывается внутри транзакции ({@link #setCommitMode()})
+     */
+    public CopyManager getCopyManager() throws SQLException {
+        return current().getConnection().unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    // выдает соединение текущего потока, при первом обращении берет его из пула
+    private ConnectionPool.PooledConnection acquire() throws SQLException {
+        if (pool == null) throw new SQLException("Соединение с базой данных не установлено");
+        Lease current = lease.get();
+        if (current == null) {
+            current = new Lease(pool.borrow());
+            lease.set(current);
+        }
+        current.holds++;
+        return current.pooledConnection;
+    }
+
+    // соединение, уже выданное текущему потоку
+    private ConnectionPool.PooledConnection current() throws SQLException {
+        Lease current = lease.get();
+        if (current == null) throw new SQLException("Текущему потоку не выдано соединение с базой данных");
+        return current.pooledConnection;
+    }
+
+    // возвращает соединение в пул, когда поток перестал его использовать
+    private void release() {
+        Lease current = lease.get();
+        if (current == null) return;
+        if (--current.holds == 0) {
+            lease.remove();
+            pool.release(current.pooledConnection);
+        }
+    }
 }
@@ -0,0 +1,159 @@
+package server.utility;
+
+import com.google.gson.JsonParseException;
+import common.data.*;
+import common.utility.FlatReader;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбирает содержимое файла для команды import.
+ * <p>
+ * Поддерживаются два формата:
+ * <ul>
+ *     <li>JSON - массив элементов или объект "ключ - элемент", как его записывает {@link JsonParser};</li>
+ *     <li>CSV - по элементу в строке, поля через запятую в порядке {@link #CSV_HEADER}. Первая строка может
+ *     быть заголовком, пустое поле означает null, пустое имя дома - элемент без дома. Поле с запятой, кавычкой
+ *     или переводом строки заключается в кавычки, кавычка внутри него удваивается (RFC 4180).</li>
+ * </ul>
+ * Каждый элемент проверяется по тем же ограничениям, что и при вводе с клавиатуры.
+ */
+public final class FlatImportParser {
+    /**
+     * Заголовок CSV файла
+     */
+    public static final String CSV_HEADER = "name,x,y,area,number_of_rooms,number_of_bathrooms,furnish,view," +
+            "house_name,house_year,house_number_of_floors,house_number_of_flats_on_floor,house_number_of_lifts";
+    private static final int CSV_COLUMNS = 13;
+
+    private FlatImportParser() {}
+
+    /**
+     * Разбирает содержимое файла
+     *
+     * @param content содержимое файла в формате JSON или CSV
+     * @return элементы в порядке следования в файле
+     * @throws IllegalArgumentException содержимое не удалось разобрать или элемент нарушает ограничения;
+     *                                  сообщение указывает на номер элемента
+     */
+    public static List<Flat> parse(String content) {
+        String trimmed = content.strip();
+        List<Flat> flats;
+        if (trimmed.startsWith("[") || trimmed.startsWith("{")) {
+            try {
+                flats = trimmed.startsWith("[") ? JsonParser.decodeList(trimmed) : new ArrayList<>(JsonParser.decode(trimmed).values());
+            } catch (JsonParseException ex) {
+                throw new IllegalArgumentException("Содержимое не является корректным JSON: " + ex.getMessage());
+            }
+        } else {
+            flats = parseCsv(trimmed);
+        }
+        for (int i = 0; i < flats.size(); i++) {
+            String error = validate(flats.get(i));
+            if (error != null) throw new IllegalArgumentException("Элемент " + (i + 1) + ": " + error);
+        }
+        return flats;
+    }
+
+    private static List<Flat> parseCsv(String content) {
+        List<Flat> flats = new ArrayList<>();
+        List<CsvRow> rows = splitCsv(content);
+        for (int i = 0; i < rows.size(); i++) {
+            CsvRow row = rows.get(i);
+            List<String> fields = row.fields();
+            if (fields.size() == 1 && fields.get(0).isBlank() || i == 0 && fields.get(0).equals("name")) continue;
+            if (fields.size() != CSV_COLUMNS) {
+                throw new IllegalArgumentException("Строка " + row.line() + ": ожидается " + CSV_COLUMNS +
+                        " полей (" + CSV_HEADER + "), получено " + fields.size());
+            }
+            try {
+                House house = fields.get(8).isBlank() ? null : new House(fields.get(8).trim(), Integer.parseInt(fields.get(9).trim()),
+                        parseNullableLong(fields.get(10)), Long.parseLong(fields.get(11).trim()), parseNullableLong(fields.get(12)));
+                flats.add(new Flat(fields.get(0).trim(),
+                        new Coordinates(Integer.parseInt(fields.get(1).trim()), Integer.parseInt(fields.get(2).trim())),
+                        Integer.parseInt(fields.get(3).trim()),
+                        Long.parseLong(fields.get(4).trim()),
+                        Long.parseLong(fields.get(5).trim()),
+                        Furnish.valueOf(fields.get(6).trim().toUpperCase()),
+                        fields.get(7).isBlank() ? null : View.valueOf(fields.get(7).trim().toUpperCase()),
+                        house));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Строка " + row.line() + ": недопустимое значение поля (" + ex.getMessage() + ")");
+            }
+        }
+        return flats;
+    }
+
+    private record CsvRow(int line, List<String> fields) {}
+
+    // разбивает CSV на записи по RFC 4180: поле в кавычках может содержать запятые и переводы строк,
+    // кавычка внутри него записывается двумя кавычками
+    private static List<CsvRow> splitCsv(String content) {
+        List<CsvRow> rows = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int line = 1;
+        int rowLine = 1;
+        boolean quoted = false;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < content.length() && content.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    if (c == '\n') line++;
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r' && i + 1 < content.length() && content.charAt(i + 1) == '\n') i++;
+                fields.add(field.toString());
+                field.setLength(0);
+                rows.add(new CsvRow(rowLine, fields));
+                fields = new ArrayList<>();
+                rowLine = ++line;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Строка " + rowLine + ": не закрыта кавычка");
+        fields.add(field.toString());
+        rows.add(new CsvRow(rowLine, fields));
+        return rows;
+    }
+
+    private static Long parseNullableLong(String field) {
+        return field.isBlank() ? null : Long.parseLong(field.trim());
+    }
+
+    // ограничения совпадают с проверками FlatReader; null - элемент корректен
+    private static String validate(Flat flat) {
+        if (flat == null) return "пустой элемент";
+        if (flat.getName() == null || !flat.getName().matches(FlatReader.PATTERN_NAMES)) return "недопустимое имя";
+        Coordinates coordinates = flat.getCoordinates();
+        if (coordinates == null) return "не заданы координаты";
+        if (coordinates.getX() > 713) return "координата x должна быть не больше 713";
+        if (coordinates.getY() == null || coordinates.getY() <= -397) return "координата y должна быть больше -397";
+        if (flat.getArea() <= 0) return "площадь должна быть больше 0";
+        if (flat.getNumberOfRooms() <= 0 || flat.getNumberOfRooms() > 14) return "количество комнат должно быть от 1 до 14";
+        if (flat.getNumberOfBathrooms() <= 0) return "количество ванных комнат должно быть больше 0";
+        if (flat.getFurnish() == null) return "не задана мебель";
+        House house = flat.getHouse();
+        if (house == null) return null;
+        if (house.getName() == null || !house.getName().matches(FlatReader.PATTERN_NAMES)) return "недопустимое имя дома";
+        if (house.getYear() <= 0) return "год постройки дома должен быть больше 0";
+        if (house.getNumberOfFloors() != null && (house.getNumberOfFloors() <= 0 || house.getNumberOfFloors() > 39))
+            return "количество этажей должно быть от 1 до 39";
+        if (house.getNumberOfFlatsOnFloor() <= 0) return "количество квартир на этаже должно быть больше 0";
+        if (house.getNumberOfLifts() != null && house.getNumberOfLifts() <= 0) return "количество лифтов должно быть больше 0";
+        return null;
+    }
+}
@@ -0,0 +1,85 @@
+package server.utility;
+
+import common.data.Flat;
+import common.data.Furnish;
+import common.data.View;
+import common.interaction.User;
+
+import java.time.LocalDateTime;
+
+/**
+ * Неизменяемый элемент коллекции сервера.
+ * <p>
+ * {@link Flat} остается форматом обмена с клиентом, БД и файлами; {@link CollectionManager} переводит его
+ * в запись при добавлении и обратно - при выдаче наружу. Методы {@code with*} возвращают новую запись
+ * и переиспользуют неизмененные вложенные объекты, поэтому запись можно без копирования раздавать
+ * параллельным читателям и хранить в нескольких индексах.
+ *
+ * @param owner имя владельца; null - владелец неизвестен. Хранится только имя, а не изменяемый
+ *              {@link User}, поэтому запись действительно неизменяема
+ */
+public record FlatRecord(int id, String name, CoordinatesRecord coordinates, LocalDateTime creationDate, int area,
+                         long numberOfRooms, long numberOfBathrooms, Furnish furnish, View view, HouseRecord house,
+                         String owner) {
+
+    /**
+     * Создает запись по элементу, переданному клиентом или прочитанному из БД
+     *
+     * @param flat элемент
+     * @return запись
+     */
+    public static FlatRecord of(Flat flat) {
+        return new FlatRecord(flat.getId(), flat.getName(), CoordinatesRecord.of(flat.getCoordinates()), flat.getCreationDate(),
+                flat.getArea(), flat.getNumberOfRooms(), flat.getNumberOfBathrooms(), flat.getFurnish(), flat.getView(),
+                HouseRecord.of(flat.getHouse()), flat.getOwner() == null ? null : flat.getOwner().getUsername());
+    }
+
+    /**
+     * @return изменяемый элемент для передачи клиенту или записи в файл
+     */
+    public Flat toFlat() {
+        return new Flat(id, name, coordinates == null ? null : coordinates.toCoordinates(), creationDate, area,
+                numberOfRooms, numberOfBathrooms, furnish, view, house == null ? null : house.toHouse(),
+                owner == null ? null : new User(owner, ""));
+    }
+
+    public FlatRecord withName(String name) {
+        return new FlatRecord(id, name, coordinates, creationDate, area, numberOfRooms, numberOfBathrooms, furnish, view, house, owner);
+    }
+
+    public FlatRecord withCoordinates(CoordinatesRecord coordinates) {
+        return new FlatRecord(id, name, coordinates, creationDate, area, numberOfRooms, numberOfBathrooms, furnish, view, house, owner);
+    }
+
+    public FlatRecord withArea(int area) {
+        return new FlatRecord(id, name, coordinates, creationDate, area, numberOfRooms, numberOfBathrooms, furnish, view, house, owner);
+    }
+
+    public FlatRecord withNumberOfRooms(long numberOfRooms) {
+        return new FlatRecord(id, name, coordinates, creationDate, area, numberOfRooms, numberOfBathrooms, furnish, view, house, owner);
+    }
+
+    public FlatRecord withNumberOfBathrooms(long numberOfBathrooms) {
+        return new FlatRecord(id, name, coordinates, creationDate, area, numberOfRooms, numberOfBathrooms, furnish, view, house, owner);
+    }
+
+    public FlatRecord withFurnish(Furnish furnish) {
+        return new FlatRecord(id, name, coordinates, creationDate, area, numberOfRooms, numberOfBathrooms, furnish, view, house, owner);
+    }
+
+    public FlatRecord withView(View view) {
+        return new FlatRecord(id, name, coordinates, creationDate, area, numberOfRooms, numberOfBathrooms, furnish, view, house, owner);
+    }
+
+    public FlatRecord withHouse(HouseRecord house) {
+        return new FlatRecord(id, name, coordinates, creationDate, area, numberOfRooms, numberOfBathrooms, furnish, view, house, owner);
+    }
+
+    /**
+     * @return то же описание, что и у {@link Flat#toString()}
+     */
+    @Override
+    public String toString() {
+        return toFlat().toString();
+    }
+}
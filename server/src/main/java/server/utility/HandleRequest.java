@@ -9,6 +9,8 @@ import common.utility.JWTService;
 import server.App;
 import server.commands.CommandManager;
 
+import java.util.function.Consumer;
+
 public class HandleRequest {
     private final CommandManager commandManager;
     private final ServerConsole serverConsole; //todo заменить на возврит стринга из метода
@@ -18,17 +20,27 @@ public class HandleRequest {
         this.serverConsole = serverConsole;
     }
 
-    public Client handle (Client client) {
-        Request request = client.getRequest();
+    /**
+     * Обрабатывает запрос и формирует ответ на него. Если команда выдает результат частями,
+     * каждая часть отправляется отдельным ответом с флагом {@link Response#isMore()},
+     * последний ответ приходит без флага
+     *
+     * @param request      запрос клиента
+     * @param responseSink получатель ответов сервера
+     */
+    public void handle(Request request, Consumer<Response> responseSink) {
         String answer;
         ResponseCode responseCode;
         User user = request.getUser();
+        ResponseParts parts = new ResponseParts(responseSink);
 
         //этот try выставляет responseCode и responseBody (answer)
         try {
             user = adaptUser(user);
-            answer = executeCommand(request.getCommandName(), request.getCommandStringArgument(),
-                    request.getCommandObjectArgument(), user);
+            parts.setUser(new User(null, null).setToken(user.getToken()));
+            executeCommand(request.getCommandName(), request.getCommandStringArgument(),
+                    request.getCommandObjectArgument(), user, parts);
+            answer = parts.takeLast();
             responseCode = ResponseCode.OK;
         } catch (InvalidCommandException | WrongArgumentException e) {
             App.logger.warning("Ошибка " + e.getClass() + " при попытке исполнить команду: " + request.getCommandName());
@@ -42,8 +54,19 @@ public class HandleRequest {
             responseCode = ResponseCode.TOKEN_EXPIRED;
         }
 
-        client.setServerResponse(new Response(responseCode, answer, new User(null, null).setToken(user.getToken())));
-        return client;
+        responseSink.accept(new Response(responseCode, answer, new User(null, null).setToken(user.getToken())));
+    }
+
+    /**
+     * Формирует ответ на запрос, который сервер отказался обрабатывать из-за перегрузки
+     *
+     * @param request отклоненный запрос
+     * @return ответ с кодом {@link ResponseCode#SERVER_BUSY}
+     */
+    public Response rejectBusy(Request request) {
+        String token = request.getUser() == null ? null : request.getUser().getToken();
+        return new Response(ResponseCode.SERVER_BUSY, "Сервер перегружен, повторите запрос позже\n",
+                new User(null, null).setToken(token));
     }
 
     /**
@@ -52,11 +75,42 @@ public class HandleRequest {
      * @param command               имя команды
      * @param commandStringArgument String аргумент команды
      * @param commandObjectArgument Object аргумента команды
-     * @return статус исполнения
+     * @param output                получатель частей результата
      */
-    private String executeCommand(String command, String commandStringArgument, Object commandObjectArgument, User user)
+    private void executeCommand(String command, String commandStringArgument, Object commandObjectArgument, User user,
+                                Consumer<String> output)
             throws InvalidCommandException, WrongArgumentException, UserAlreadyExistsException, UserIsNotFoundException {
-        return commandManager.executeCommand(command, commandStringArgument, commandObjectArgument, user);
+        commandManager.executeCommand(command, commandStringArgument, commandObjectArgument, user, output);
+    }
+
+    /**
+     * Отправляет части результата команды с отставанием на одну: пока не пришла следующая часть,
+     * неизвестно, последняя ли текущая. Последнюю часть забирает {@link #handle(Request, Consumer)}
+     */
+    private static class ResponseParts implements Consumer<String> {
+        private final Consumer<Response> responseSink;
+        private User user;
+        private String pending;
+
+        ResponseParts(Consumer<Response> responseSink) {
+            this.responseSink = responseSink;
+        }
+
+        void setUser(User user) {
+            this.user = user;
+        }
+
+        @Override
+        public void accept(String part) {
+            if (pending != null) responseSink.accept(new Response(ResponseCode.OK, pending, user, true));
+            pending = part;
+        }
+
+        String takeLast() {
+            String last = pending == null ? "" : pending;
+            pending = null;
+            return last;
+        }
     }
 
     //после этой штуки юзер будет таким, что наш старый сервер сможет с ним работать
@@ -0,0 +1,271 @@
+package server.utility;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Индекс домов для запросов "дом меньше заданного по всем четырем полям": год постройки, число этажей,
+ * число квартир на этаже и число лифтов.
+ * <p>
+ * Дома хранятся в k-d дереве, уровни которого по очереди делят пространство по каждому из полей. В каждом
+ * узле хранится покомпонентный минимум его поддерева, поэтому поддерево, в котором хотя бы по одному полю
+ * нет значений меньше заданного, пропускается целиком.
+ * <p>
+ * Удаленный узел помечается и остается в дереве, пока помеченных не станет больше живых; тогда дерево
+ * перестраивается. Если после добавления ветка становится слишком глубокой, перестраивается поддерево
+ * с нарушенным балансом (как в scapegoat-дереве), поэтому глубина остается логарифмической.
+ * <p>
+ * Дома без числа этажей или лифтов не индексируются: сравнение с ними всегда ложно.
+ * Методы синхронизированы на самом индексе.
+ */
+public class HouseDominanceIndex {
+    private static final int DIMENSIONS = 4;
+    // доля размера поддерева, которую может занимать одна ветвь, прежде чем поддерево перестраивается
+    private static final double BALANCE = 0.7;
+
+    private static final class Node {
+        private final int key;
+        private final long[] point;
+        private final long[] min = new long[DIMENSIONS];
+        private Node left;
+        private Node right;
+        private int size;
+        private boolean deleted;
+
+        private Node(int key, long[] point) {
+            this.key = key;
+            this.point = point;
+        }
+    }
+
+    private Node root;
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private int deletedCount;
+
+    /**
+     * Добавляет дом элемента. Если ключ уже есть в индексе, прежний дом заменяется
+     *
+     * @param key   ключ элемента
+     * @param house дом, null - элемент без дома
+     */
+    public synchronized void add(int key, HouseRecord house) {
+        remove(key);
+        long[] point = toPoint(house);
+        if (point == null) return;
+        Node node = new Node(key, point);
+        nodes.put(key, node);
+        insert(node);
+    }
+
+    /**
+     * Убирает дом элемента из индекса
+     *
+     * @param key ключ элемента
+     */
+    public synchronized void remove(int key) {
+        Node node = nodes.remove(key);
+        if (node == null) return;
+        node.deleted = true;
+        deletedCount++;
+        if (deletedCount > nodes.size()) {
+            root = build(nodes.values().toArray(new Node[0]), 0, nodes.size(), 0);
+            deletedCount = 0;
+        }
+    }
+
+    /**
+     * @return количество проиндексированных домов
+     */
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Находит элементы, дом которых строго меньше заданного по году, числу этажей, числу квартир на этаже
+     * и числу лифтов
+     *
+     * @param bound дом, с которым сравниваются дома элементов
+     * @return ключи найденных элементов в произвольном порядке
+     */
+    public synchronized List<Integer> findLessThan(HouseRecord bound) {
+        List<Integer> keys = new ArrayList<>();
+        long[] limit = toPoint(bound);
+        if (limit == null || root == null) return keys;
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (!anyBelow(node.min, limit)) continue;
+            if (!node.deleted && allBelow(node.point, limit)) keys.add(node.key);
+            if (node.left != null) stack.push(node.left);
+            if (node.right != null) stack.push(node.right);
+        }
+        return keys;
+    }
+
+    /**
+     * Проверяет условие, по которому ищет {@link #findLessThan(HouseRecord)}, для одного дома
+     *
+     * @param house дом элемента
+     * @param bound дом, с которым он сравнивается
+     * @return true, если дом строго меньше заданного по всем четырем полям
+     */
+    public static boolean isLessThan(HouseRecord house, HouseRecord bound) {
+        long[] point = toPoint(house);
+        long[] limit = toPoint(bound);
+        return point != null && limit != null && allBelow(point, limit);
+    }
+
+    private static long[] toPoint(HouseRecord house) {
+        if (house == null || house.numberOfFloors() == null || house.numberOfLifts() == null) return null;
+        return new long[]{house.year(), house.numberOfFloors(), house.numberOfFlatsOnFloor(), house.numberOfLifts()};
+    }
+
+    // в поддереве могут быть точки меньше limit, только если каждый минимум меньше limit
+    private static boolean anyBelow(long[] min, long[] limit) {
+        for (int i = 0; i < DIMENSIONS; i++) {
+            if (min[i] >= limit[i]) return false;
+        }
+        return true;
+    }
+
+    private static boolean allBelow(long[] point, long[] limit) {
+        for (int i = 0; i < DIMENSIONS; i++) {
+            if (point[i] >= limit[i]) return false;
+        }
+        return true;
+    }
+
+    private void insert(Node node) {
+        resetSubtree(node);
+        if (root == null) {
+            root = node;
+            return;
+        }
+        List<Node> path = new ArrayList<>();
+        Node current = root;
+        int depth = 0;
+        while (true) {
+            path.add(current);
+            current.size++;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                current.min[i] = Math.min(current.min[i], node.point[i]);
+            }
+            int axis = depth % DIMENSIONS;
+            depth++;
+            if (node.point[axis] < current.point[axis]) {
+                if (current.left == null) {
+                    current.left = node;
+                    break;
+                }
+                current = current.left;
+            } else {
+                if (current.right == null) {
+                    current.right = node;
+                    break;
+                }
+                current = current.right;
+            }
+        }
+        if (depth > maxDepth(root.size)) rebalance(path);
+    }
+
+    private static int maxDepth(int size) {
+        return (int) (Math.log(size) / Math.log(1 / BALANCE)) + 1;
+    }
+
+    // перестраивает ближайшее к вставленному узлу поддерево на пути вставки, в котором нарушен баланс
+    private void rebalance(List<Node> path) {
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            Node node = path.get(depth);
+            int largestChild = Math.max(sizeOf(node.left), sizeOf(node.right));
+            if (largestChild <= BALANCE * node.size) continue;
+
+            List<Node> live = new ArrayList<>(node.size);
+            collectLive(node, live);
+            int dropped = node.size - live.size();
+            deletedCount -= dropped;
+            Node rebuilt = build(live.toArray(new Node[0]), 0, live.size(), depth);
+            if (depth == 0) {
+                root = rebuilt;
+            } else {
+                Node parent = path.get(depth - 1);
+                if (parent.left == node) parent.left = rebuilt;
+                else parent.right = rebuilt;
+                for (int i = 0; i < depth; i++) {
+                    path.get(i).size -= dropped;
+                }
+            }
+            return;
+        }
+    }
+
+    private static int sizeOf(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static void collectLive(Node subtree, List<Node> live) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(subtree);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (!node.deleted) live.add(node);
+            if (node.left != null) stack.push(node.left);
+            if (node.right != null) stack.push(node.right);
+        }
+    }
+
+    // строит сбалансированное дерево: медиана по оси уровня становится корнем поддерева
+    private static Node build(Node[] nodes, int from, int to, int depth) {
+        if (from >= to) return null;
+        int axis = depth % DIMENSIONS;
+        int middle = (from + to) >>> 1;
+        select(nodes, from, to - 1, middle, axis);
+        Node node = nodes[middle];
+        resetSubtree(node);
+        node.left = build(nodes, from, middle, depth + 1);
+        node.right = build(nodes, middle + 1, to, depth + 1);
+        for (Node child : new Node[]{node.left, node.right}) {
+            if (child == null) continue;
+            node.size += child.size;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                node.min[i] = Math.min(node.min[i], child.min[i]);
+            }
+        }
+        return node;
+    }
+
+    private static void resetSubtree(Node node) {
+        node.left = null;
+        node.right = null;
+        node.size = 1;
+        System.arraycopy(node.point, 0, node.min, 0, DIMENSIONS);
+    }
+
+    // ставит на место k элемент, который был бы там после сортировки по оси (quickselect)
+    private static void select(Node[] nodes, int left, int right, int k, int axis) {
+        while (left < right) {
+            long pivot = nodes[(left + right) >>> 1].point[axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (nodes[i].point[axis] < pivot) i++;
+                while (nodes[j].point[axis] > pivot) j--;
+                if (i <= j) {
+                    Node swap = nodes[i];
+                    nodes[i] = nodes[j];
+                    nodes[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) right = j;
+            else if (k >= i) left = i;
+            else return;
+        }
+    }
+}
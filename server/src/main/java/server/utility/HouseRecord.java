@@ -0,0 +1,52 @@
+package server.utility;
+
+import common.data.House;
+
+import java.util.Comparator;
+
+/**
+ * Неизменяемый дом элемента в коллекции сервера
+ *
+ * @param name                 имя дома
+ * @param year                 год постройки
+ * @param numberOfFloors       количество этажей, может быть null
+ * @param numberOfFlatsOnFloor количество квартир на этаже
+ * @param numberOfLifts        количество лифтов, может быть null
+ */
+public record HouseRecord(String name, int year, Long numberOfFloors, long numberOfFlatsOnFloor, Long numberOfLifts)
+        implements Comparable<HouseRecord> {
+
+    /**
+     * Создает неизменяемую копию дома, переданного клиентом или прочитанного из БД
+     *
+     * @param house дом или null
+     * @return копия или null
+     */
+    public static HouseRecord of(House house) {
+        return house == null ? null : new HouseRecord(house.getName(), house.getYear(), house.getNumberOfFloors(),
+                house.getNumberOfFlatsOnFloor(), house.getNumberOfLifts());
+    }
+
+    /**
+     * @return изменяемый дом для передачи клиенту или записи в файл
+     */
+    public House toHouse() {
+        return new House(name, year, numberOfFloors, numberOfFlatsOnFloor, numberOfLifts);
+    }
+
+    /**
+     * Сравнивает дома так же, как {@link House#compareTo(House)}: по числу этажей (дома без него первыми),
+     * затем по числу квартир на этаже
+     */
+    @Override
+    public int compareTo(HouseRecord o) {
+        int floors = Comparator.nullsFirst(Long::compare).compare(numberOfFloors, o.numberOfFloors);
+        if (floors != 0) return floors;
+        return Long.compare(numberOfFlatsOnFloor, o.numberOfFlatsOnFloor);
+    }
+
+    @Override
+    public String toString() {
+        return toHouse().toString();
+    }
+}
@@ -6,6 +6,8 @@ import common.data.Flat;
 
 import java.lang.reflect.Type;
 import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Класс позволяет работать с файлами формата Json.
@@ -17,15 +19,16 @@ public class JsonParser {
     private static final Gson GSON = new Gson();
     // следующая строка была взята из документации на библиотеку GSON
     private static final Type HASHTABLE_TYPE = new TypeToken<Hashtable<Integer, Flat>>() {}.getType();
+    private static final Type LIST_TYPE = new TypeToken<List<Flat>>() {}.getType();
 
     /**
      * Метод представляет коллекцию в формате Json для последующего сохранения в файл
      *
-     * @param hashtable коллекция ({@link Hashtable}) с объектом типа {@link Flat}
+     * @param collection коллекция с объектами типа {@link Flat}
      * @return строку в Json формате
      */
-    public static String encode(Hashtable<Integer, Flat> hashtable) {
-        return GSON.toJson(hashtable);
+    public static String encode(Map<Integer, Flat> collection) {
+        return GSON.toJson(collection);
     }
 
     /**
@@ -37,4 +40,14 @@ public class JsonParser {
     public static Hashtable<Integer, Flat> decode(String jsonString) {
         return GSON.fromJson(jsonString, HASHTABLE_TYPE);
     }
-}
\ No newline at end of file
+
+    /**
+     * Метод переводит массив в Json формате в список объектов
+     *
+     * @param jsonString строка в Json формате
+     * @return список объектов типа {@link Flat} в порядке следования в массиве
+     */
+    public static List<Flat> decodeList(String jsonString) {
+        return GSON.fromJson(jsonString, LIST_TYPE);
+    }
+}
@@ -0,0 +1,117 @@
+package server.utility;
+
+import common.interaction.FrameCodec;
+import common.interaction.WireProtocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Состояние одного клиентского соединения неблокирующего сервера.
+ * Собирает кадры запросов из байтов, приходящих по частям, и хранит очередь кадров ответов,
+ * которые еще не были записаны в канал.
+ */
+public class NioConnection {
+    private final SocketChannel channel;
+    private final SelectionKey selectionKey;
+    private final SerialExecutor mailbox;
+    private final ByteBuffer header = ByteBuffer.allocate(FrameCodec.HEADER_SIZE);
+    private ByteBuffer body;
+    private final Queue<ByteBuffer> pendingWrites = new ConcurrentLinkedQueue<>();
+    private volatile WireProtocol protocol;
+
+    public NioConnection(SocketChannel channel, SelectionKey selectionKey, SerialExecutor mailbox) {
+        this.channel = channel;
+        this.selectionKey = selectionKey;
+        this.mailbox = mailbox;
+    }
+
+    /**
+     * Читает из канала все доступные байты и возвращает тела кадров, которые удалось собрать целиком.
+     * Вызывается только из потока селектора.
+     *
+     * @return тела полностью прочитанных кадров (возможно, пустой список)
+     * @throws IOException ошибка чтения или клиент закрыл соединение
+     */
+    public List<byte[]> readFrames() throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        while (true) {
+            if (body == null) {
+                if (channel.read(header) < 0) throw new EOFException();
+                if (header.hasRemaining()) return frames;
+                header.flip();
+                int length = header.getInt();
+                header.clear();
+                FrameCodec.checkLength(length);
+                body = ByteBuffer.allocate(length);
+            }
+            if (channel.read(body) < 0) throw new EOFException();
+            if (body.hasRemaining()) return frames;
+            frames.add(body.array());
+            body = null;
+        }
+    }
+
+    /**
+     * Добавляет кадр в очередь на отправку. Может вызываться из любого потока,
+     * сама запись выполняется потоком селектора.
+     *
+     * @param frame кадр, готовый к записи
+     */
+    public void enqueue(ByteBuffer frame) {
+        pendingWrites.add(frame);
+    }
+
+    /**
+     * Записывает в канал столько кадров из очереди, сколько он готов принять.
+     * Вызывается только из потока селектора.
+     *
+     * @return true, если очередь на отправку опустела
+     * @throws IOException ошибка записи
+     */
+    public boolean flush() throws IOException {
+        ByteBuffer frame;
+        while ((frame = pendingWrites.peek()) != null) {
+            channel.write(frame);
+            if (frame.hasRemaining()) return false;
+            pendingWrites.poll();
+        }
+        return true;
+    }
+
+    /**
+     * @return очередь, в которой по порядку исполняются запросы этого соединения
+     */
+    public SerialExecutor getMailbox() {
+        return mailbox;
+    }
+
+    /**
+     * @return согласованный протокол или null, если первый кадр еще не получен
+     */
+    public WireProtocol getProtocol() {
+        return protocol;
+    }
+
+    public void setProtocol(WireProtocol protocol) {
+        this.protocol = protocol;
+    }
+
+    public SelectionKey getSelectionKey() {
+        return selectionKey;
+    }
+
+    public void close() {
+        selectionKey.cancel();
+        try {
+            channel.close();
+        } catch (IOException ignore) {}
+    }
+}
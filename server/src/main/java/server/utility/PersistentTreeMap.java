@@ -0,0 +1,258 @@
+package server.utility;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемая упорядоченная таблица - сбалансированное AVL-дерево.
+ * <p>
+ * Изменение не трогает текущую таблицу, а возвращает новую: копируются только узлы на пути от корня
+ * к измененному ключу (O(log n)), остальные узлы общие у старой и новой версии. Поэтому таблицу можно
+ * опубликовать через volatile-ссылку и читать из любых потоков без блокировок, пока писатель готовит
+ * следующую версию.
+ * <p>
+ * Ключи и значения не могут быть null.
+ *
+ * @param <K> тип ключа
+ * @param <V> тип значения
+ */
+public final class PersistentTreeMap<K, V> implements Iterable<Map.Entry<K, V>> {
+    private static final PersistentTreeMap<?, ?> EMPTY = new PersistentTreeMap<>(Comparator.naturalOrder(), null, 0);
+
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        private final K key;
+        private final V value;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int height;
+
+        private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Map.Entry<?, ?> entry && key.equals(entry.getKey()) && value.equals(entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+    private final int size;
+
+    private PersistentTreeMap(Comparator<? super K> comparator, Node<K, V> root, int size) {
+        this.comparator = comparator;
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return пустая таблица с естественным порядком ключей
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> PersistentTreeMap<K, V> empty() {
+        return (PersistentTreeMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @param comparator порядок ключей
+     * @return пустая таблица с заданным порядком ключей
+     */
+    public static <K, V> PersistentTreeMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentTreeMap<>(comparator, null, 0);
+    }
+
+    /**
+     * @return количество ключей, O(1)
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return значение по ключу или null, если ключа нет
+     */
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(key, node.key);
+            if (cmp == 0) return node.value;
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return таблица, в которой ключу соответствует заданное значение
+     */
+    public PersistentTreeMap<K, V> put(K key, V value) {
+        V previous = get(key);
+        if (previous == value) return this;
+        return new PersistentTreeMap<>(comparator, put(root, key, value), previous == null ? size + 1 : size);
+    }
+
+    /**
+     * @return таблица без заданного ключа; эта же таблица, если ключа нет
+     */
+    public PersistentTreeMap<K, V> remove(K key) {
+        if (get(key) == null) return this;
+        return new PersistentTreeMap<>(comparator, remove(root, key), size - 1);
+    }
+
+    /**
+     * @return пара с наименьшим ключом или null, если таблица пуста
+     */
+    public Map.Entry<K, V> firstEntry() {
+        Node<K, V> node = root;
+        while (node != null && node.left != null) node = node.left;
+        return node;
+    }
+
+    /**
+     * @return пара с наибольшим ключом или null, если таблица пуста
+     */
+    public Map.Entry<K, V> lastEntry() {
+        Node<K, V> node = root;
+        while (node != null && node.right != null) node = node.right;
+        return node;
+    }
+
+    /**
+     * @return пары в порядке возрастания ключа
+     */
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(root, null, comparator);
+    }
+
+    /**
+     * @param key ключ, после которого начинается обход
+     * @return пары с ключами строго больше заданного в порядке возрастания ключа; поиск начала - O(log n)
+     */
+    public Iterable<Map.Entry<K, V>> entriesAfter(K key) {
+        return () -> new EntryIterator<>(root, key, comparator);
+    }
+
+    private Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null) return new Node<>(key, value, null, null);
+        int cmp = comparator.compare(key, node.key);
+        if (cmp < 0) return balance(node.key, node.value, put(node.left, key, value), node.right);
+        if (cmp > 0) return balance(node.key, node.value, node.left, put(node.right, key, value));
+        return new Node<>(key, value, node.left, node.right);
+    }
+
+    // вызывается, только если ключ есть в поддереве
+    private Node<K, V> remove(Node<K, V> node, K key) {
+        int cmp = comparator.compare(key, node.key);
+        if (cmp < 0) return balance(node.key, node.value, remove(node.left, key), node.right);
+        if (cmp > 0) return balance(node.key, node.value, node.left, remove(node.right, key));
+        if (node.left == null) return node.right;
+        if (node.right == null) return node.left;
+        Node<K, V> next = node.right;
+        while (next.left != null) next = next.left;
+        return balance(next.key, next.value, node.left, removeFirst(node.right));
+    }
+
+    private static <K, V> Node<K, V> removeFirst(Node<K, V> node) {
+        if (node.left == null) return node.right;
+        return balance(node.key, node.value, removeFirst(node.left), node.right);
+    }
+
+    // собирает узел из поддеревьев, высоты которых отличаются не больше чем на 2, и восстанавливает баланс
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        if (height(left) > height(right) + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+            }
+            Node<K, V> middle = left.right;
+            return new Node<>(middle.key, middle.value, new Node<>(left.key, left.value, left.left, middle.left),
+                    new Node<>(key, value, middle.right, right));
+        }
+        if (height(right) > height(left) + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+            }
+            Node<K, V> middle = right.left;
+            return new Node<>(middle.key, middle.value, new Node<>(key, value, left, middle.left),
+                    new Node<>(right.key, right.value, middle.right, right.right));
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        // путь к следующему узлу: узлы, левое поддерево которых уже пройдено
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+
+        private EntryIterator(Node<K, V> root, K after, Comparator<? super K> comparator) {
+            Node<K, V> node = root;
+            while (node != null) {
+                if (after == null || comparator.compare(node.key, after) > 0) {
+                    path.push(node);
+                    node = node.left;
+                } else {
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !path.isEmpty();
+        }
+
+        @Override
+        public Map.Entry<K, V> next() {
+            if (path.isEmpty()) throw new NoSuchElementException();
+            Node<K, V> node = path.pop();
+            for (Node<K, V> next = node.right; next != null; next = next.left) {
+                path.push(next);
+            }
+            return node;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package server.utility;
+
+import server.App;
+
+import java.util.concurrent.*;
+
+/**
+ * Движок исполнения клиентских запросов.
+ * Ограничивает число одновременно обрабатываемых и ожидающих запросов, а запросы сверх лимита
+ * не ставит в очередь, а отклоняет, чтобы сервер мог сразу ответить клиенту, что он перегружен.
+ * <p>
+ * Настраивается системными свойствами:
+ * <ul>
+ *     <li>{@code server.executor} - {@code bounded} (пул потоков, по умолчанию) или {@code virtual}
+ *     (виртуальный поток на каждый запрос, JDK 21)</li>
+ *     <li>{@code server.workers} - число потоков пула</li>
+ *     <li>{@code server.queue} - вместимость очереди ожидающих запросов</li>
+ * </ul>
+ */
+public class RequestExecutor {
+    public static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors() * 2;
+    public static final int DEFAULT_QUEUE_CAPACITY = 1000;
+
+    private final ExecutorService executor;
+    // ограничивает число запросов в работе для режима виртуальных потоков, у которого нет своей очереди
+    private final Semaphore inFlight;
+
+    private RequestExecutor(ExecutorService executor, Semaphore inFlight) {
+        this.executor = executor;
+        this.inFlight = inFlight;
+    }
+
+    /**
+     * Пул фиксированного размера с ограниченной очередью
+     *
+     * @param workers       число потоков
+     * @param queueCapacity вместимость очереди
+     * @return движок исполнения
+     */
+    public static RequestExecutor bounded(int workers, int queueCapacity) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+        return new RequestExecutor(pool, null);
+    }
+
+    /**
+     * Виртуальный поток на каждый запрос. Лимит одновременно обрабатываемых запросов сохраняется.
+     *
+     * @param maxInFlight максимальное число запросов в работе
+     * @return движок исполнения
+     * @throws UnsupportedOperationException JVM не поддерживает виртуальные потоки
+     */
+    public static RequestExecutor virtual(int maxInFlight) {
+        return new RequestExecutor(VirtualThreads.newVirtualThreadPerTaskExecutor(), new Semaphore(maxInFlight));
+    }
+
+    /**
+     * Создает движок по системным свойствам. Если виртуальные потоки запрошены,
+     * но недоступны, используется пул потоков.
+     *
+     * @param virtualThreads использовать виртуальные потоки независимо от {@code server.executor}
+     * @return движок исполнения
+     */
+    public static RequestExecutor fromSystemProperties(boolean virtualThreads) {
+        int workers = Integer.getInteger("server.workers", DEFAULT_WORKERS);
+        int queueCapacity = Integer.getInteger("server.queue", DEFAULT_QUEUE_CAPACITY);
+        if (virtualThreads || "virtual".equalsIgnoreCase(System.getProperty("server.executor"))) {
+            if (VirtualThreads.isSupported()) {
+                App.logger.info("Запросы исполняются в виртуальных потоках");
+                return virtual(workers + queueCapacity);
+            }
+            App.logger.warning("Виртуальные потоки не поддерживаются этой JVM, используется пул потоков");
+        }
+        App.logger.info("Запросы исполняются в пуле из " + workers + " потоков, очередь: " + queueCapacity);
+        return bounded(workers, queueCapacity);
+    }
+
+    /**
+     * Отправляет задачу на исполнение
+     *
+     * @param task       задача обработки запроса
+     * @param onRejected действие при отказе (сервер перегружен), выполняется в вызывающем потоке
+     * @return true, если задача принята
+     */
+    public boolean execute(Runnable task, Runnable onRejected) {
+        return execute(task, onRejected, null);
+    }
+
+    /**
+     * Отправляет задачу на исполнение
+     *
+     * @param task       задача обработки запроса
+     * @param onRejected действие при отказе (сервер перегружен), выполняется в вызывающем потоке
+     * @param onFinished действие после задачи, выполняется в том же потоке, когда место задачи
+     *                   в лимите уже освобождено (например, отправка следующей задачи); null - нет действия
+     * @return true, если задача принята
+     */
+    public boolean execute(Runnable task, Runnable onRejected, Runnable onFinished) {
+        if (inFlight != null && !inFlight.tryAcquire()) return reject(onRejected);
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    if (inFlight != null) inFlight.release();
+                    if (onFinished != null) onFinished.run();
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            if (inFlight != null) inFlight.release();
+            return reject(onRejected);
+        }
+    }
+
+    private boolean reject(Runnable onRejected) {
+        App.logger.warning("Сервер перегружен, запрос отклонен");
+        onRejected.run();
+        return false;
+    }
+
+    /**
+     * Прекращает прием новых задач
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
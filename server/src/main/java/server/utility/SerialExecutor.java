@@ -0,0 +1,62 @@
+package server.utility;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Почтовый ящик одного соединения. Запросы клиента исполняются в общем {@link RequestExecutor}
+ * строго по одному и в порядке поступления, поэтому ответы уходят клиенту в том же порядке,
+ * в котором пришли запросы. Запросы разных клиентов при этом обрабатываются параллельно.
+ */
+public class SerialExecutor {
+    /**
+     * Максимальное число запросов одного клиента, ожидающих своей очереди
+     */
+    public static final int MAX_PENDING = 100;
+
+    private final RequestExecutor requestExecutor;
+    private final Queue<Task> tasks = new ArrayDeque<>();
+    private boolean active;
+
+    private record Task(Runnable action, Runnable onRejected, boolean rejected) {}
+
+    public SerialExecutor(RequestExecutor requestExecutor) {
+        this.requestExecutor = requestExecutor;
+    }
+
+    /**
+     * Ставит задачу в очередь соединения
+     *
+     * @param action     обработка запроса и отправка ответа
+     * @param onRejected отправка ответа "сервер перегружен", выполняется в свою очередь,
+     *                   если задачу не удалось исполнить
+     */
+    public void execute(Runnable action, Runnable onRejected) {
+        synchronized (this) {
+            tasks.add(new Task(action, onRejected, tasks.size() >= MAX_PENDING));
+            if (active) return;
+            active = true;
+        }
+        scheduleNext();
+    }
+
+    // вызывается владельцем очереди (active = true); ответы об отказе отправляются вне монитора,
+    // чтобы медленный клиент не задерживал постановку новых запросов в очередь
+    private void scheduleNext() {
+        while (true) {
+            Task next;
+            synchronized (this) {
+                next = tasks.poll();
+                if (next == null) {
+                    active = false;
+                    return;
+                }
+            }
+            if (next.rejected()) {
+                next.onRejected().run();
+                continue;
+            }
+            if (requestExecutor.execute(next.action(), next.onRejected(), this::scheduleNext)) return;
+        }
+    }
+}
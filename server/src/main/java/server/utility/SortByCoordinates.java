@@ -1,13 +1,11 @@
 package server.utility;
 
-import common.data.Flat;
-
 import java.util.Comparator;
 
-public class SortByCoordinates implements Comparator<Flat> {
+public class SortByCoordinates implements Comparator<FlatRecord> {
     @Override
-    public int compare(Flat first, Flat second) {
-        return first.getCoordinates().compareTo(second.getCoordinates());
+    public int compare(FlatRecord first, FlatRecord second) {
+        return first.coordinates().compareTo(second.coordinates());
     }
 
 }
@@ -1,17 +1,20 @@
 package server.utility;
 
-import common.data.Flat;
-
 import java.util.Comparator;
 
-public class SortByHouse implements Comparator<Flat> {
-    public int compare(Flat first, Flat second) {
-        if (first.getHouse() == null) {
-            return -1;
-        }
-        if (second.getHouse() == null) {
-            return 1;
+/**
+ * Порядок элементов по дому: элементы без дома первыми, затем по {@link HouseRecord#compareTo},
+ * при равных домах - по id. Порядок полный, поэтому годится для упорядоченных множеств
+ */
+public class SortByHouse implements Comparator<FlatRecord> {
+    public int compare(FlatRecord first, FlatRecord second) {
+        if (first.house() == null || second.house() == null) {
+            if (first.house() != null) return 1;
+            if (second.house() != null) return -1;
+        } else {
+            int houses = first.house().compareTo(second.house());
+            if (houses != 0) return houses;
         }
-        return first.getHouse().compareTo(second.getHouse());
+        return Integer.compare(first.id(), second.id());
     }
 }
@@ -0,0 +1,112 @@
+package server.utility;
+
+import server.App;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Кэш подготовленных запросов одного соединения, ключ - текст запроса и способ подготовки.
+ * Запрос выдается из кэша на время использования и возвращается в него при закрытии,
+ * поэтому вложенные вызовы с тем же текстом получают разные объекты. Когда кэш заполнен,
+ * закрывается дольше всех не использовавшийся запрос.
+ */
+public class StatementCache {
+    private final Connection connection;
+    private final int capacity;
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final Map<Key, PreparedStatement> cached;
+    private final Map<PreparedStatement, Key> inUse = new IdentityHashMap<>();
+
+    // fetchSize = 0 - обычный запрос, иначе запрос для чтения курсором
+    private record Key(String sql, int autoGeneratedKeys, int fetchSize) {}
+
+    /**
+     * @param connection соединение, на котором готовятся запросы
+     * @param capacity   максимальное число хранимых запросов, 0 - кэш отключен
+     * @param hits       общий для пула счетчик попаданий
+     * @param misses     общий для пула счетчик промахов
+     */
+    public StatementCache(Connection connection, int capacity, LongAdder hits, LongAdder misses) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.cached = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, PreparedStatement> eldest) {
+                if (size() <= StatementCache.this.capacity) return false;
+                closeQuietly(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Выдает подготовленный запрос
+     *
+     * @param sql               текст запроса
+     * @param autoGeneratedKeys {@link java.sql.Statement#RETURN_GENERATED_KEYS} или {@link java.sql.Statement#NO_GENERATED_KEYS}
+     */
+    public synchronized PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys, 0);
+        PreparedStatement statement = take(key);
+        if (statement == null) statement = connection.prepareStatement(sql, autoGeneratedKeys);
+        inUse.put(statement, key);
+        return statement;
+    }
+
+    /**
+     * Выдает подготовленный запрос для чтения курсором только вперед
+     *
+     * @param sql       текст запроса
+     * @param fetchSize количество строк в одной порции
+     */
+    public synchronized PreparedStatement prepareCursor(String sql, int fetchSize) throws SQLException {
+        Key key = new Key(sql, 0, fetchSize);
+        PreparedStatement statement = take(key);
+        if (statement == null) {
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+        }
+        inUse.put(statement, key);
+        return statement;
+    }
+
+    /**
+     * Возвращает запрос в кэш; запрос, которому нет места, закрывается
+     */
+    public synchronized void giveBack(PreparedStatement statement) throws SQLException {
+        Key key = inUse.remove(statement);
+        if (key == null || capacity == 0 || cached.containsKey(key)) {
+            statement.close();
+            return;
+        }
+        statement.clearParameters();
+        cached.put(key, statement);
+    }
+
+    private PreparedStatement take(Key key) {
+        PreparedStatement statement = capacity == 0 ? null : cached.remove(key);
+        if (statement == null) {
+            misses.increment();
+            App.logger.fine("Подготовлен SQL запрос '" + key.sql() + "'.");
+        } else {
+            hits.increment();
+        }
+        return statement;
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException ignore) {}
+    }
+}
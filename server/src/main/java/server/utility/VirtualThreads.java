@@ -0,0 +1,45 @@
+package server.utility;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Доступ к виртуальным потокам JDK 21. Проект собирается и на более старых JDK,
+ * поэтому фабрика ищется через reflection при первом обращении.
+ */
+public final class VirtualThreads {
+    private static final Method NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR = findFactory();
+
+    private VirtualThreads() {}
+
+    private static Method findFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return true, если текущая JVM поддерживает виртуальные потоки
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR != null;
+    }
+
+    /**
+     * Создает исполнитель, запускающий каждую задачу в новом виртуальном потоке
+     *
+     * @return исполнитель
+     * @throws UnsupportedOperationException JVM не поддерживает виртуальные потоки
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isSupported()) throw new UnsupportedOperationException("Виртуальные потоки доступны начиная с JDK 21");
+        try {
+            return (ExecutorService) NEW_VIRTUAL_THREAD_PER_TASK_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException(e);
+        }
+    }
+}